@@ -13,4 +13,5 @@ import java.util.List;
 @ConfigurationProperties(prefix = "datafile")
 public class GeoDataFile {
     private List<String> paths;
+    private boolean loadingRequired = true;
 }
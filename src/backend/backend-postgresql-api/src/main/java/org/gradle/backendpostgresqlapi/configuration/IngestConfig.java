@@ -0,0 +1,28 @@
+package org.gradle.backendpostgresqlapi.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.gradle.backendpostgresqlapi.enums.GeometryEngine;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "ingest")
+public class IngestConfig {
+    private GeometryEngine geometryEngine = GeometryEngine.LOCAL;
+    private int batchSize = 500;
+    private boolean parallelIngest = false;
+    private int parallelism = 4;
+    private int tileSizeMeters = 500;
+    private int parallelIngestChunkSize = 10_000;
+    private int observationChunkSize = 100_000;
+    private long liveQueueCapacity = 1_000_000;
+    private Duration liveMaxBatchDelay = Duration.ofMillis(500);
+    private boolean concurrentFileLoading = false;
+    private int fileParsingParallelism = 4;
+    private int databasePermits = 2;
+}
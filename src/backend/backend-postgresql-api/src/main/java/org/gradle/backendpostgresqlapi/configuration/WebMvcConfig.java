@@ -0,0 +1,46 @@
+package org.gradle.backendpostgresqlapi.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.gradle.backendpostgresqlapi.service.LoadStatusService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Answers API requests with 503 Service Unavailable while the tables are migrated at startup, e.g. the column of the
+ * timestamps changes its type. Only the load status is served meanwhile.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final LoadStatusService loadStatusService;
+
+    @Autowired
+    public WebMvcConfig(LoadStatusService loadStatusService) {
+        this.loadStatusService = loadStatusService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                        if (loadStatusService.isSchemaReady()) {
+                            return true;
+                        }
+                        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                        return false;
+                    }
+                })
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/admin/**");
+    }
+}
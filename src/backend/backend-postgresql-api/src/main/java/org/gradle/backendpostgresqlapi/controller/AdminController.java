@@ -0,0 +1,25 @@
+package org.gradle.backendpostgresqlapi.controller;
+
+import org.gradle.backendpostgresqlapi.dto.LoadStatus;
+import org.gradle.backendpostgresqlapi.service.LoadStatusService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "http://localhost:4200")
+public class AdminController {
+
+    private final LoadStatusService loadStatusService;
+
+    @Autowired
+    public AdminController(LoadStatusService loadStatusService) {
+        this.loadStatusService = loadStatusService;
+    }
+
+    // http://localhost:8080/api/admin/load-status
+    @GetMapping("/load-status")
+    public LoadStatus getLoadStatus() {
+        return loadStatusService.getStatus();
+    }
+}
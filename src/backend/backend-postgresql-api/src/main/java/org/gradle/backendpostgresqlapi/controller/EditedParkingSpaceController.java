@@ -1,44 +1,127 @@
 package org.gradle.backendpostgresqlapi.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.gradle.backendpostgresqlapi.dto.BoundingBox;
 import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceDto;
-import org.gradle.backendpostgresqlapi.entity.ParkingPoint;
-import org.gradle.backendpostgresqlapi.entity.Timestamp;
+import org.gradle.backendpostgresqlapi.dto.ParkingSpacesSnapshot;
+import org.gradle.backendpostgresqlapi.enums.WireFormat;
 import org.gradle.backendpostgresqlapi.service.EditedParkingSpaceService;
-import org.gradle.backendpostgresqlapi.service.ParkingPointService;
+import org.gradle.backendpostgresqlapi.service.OccupancyEventService;
+import org.gradle.backendpostgresqlapi.service.TimestampService;
+import org.gradle.backendpostgresqlapi.service.VectorTileService;
+import org.gradle.backendpostgresqlapi.util.DateConverterUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.text.ParseException;
+import java.time.Instant;
 import java.util.*;
 
-import static org.gradle.backendpostgresqlapi.util.DateConverterUtil.formatDateToString;
-import static org.gradle.backendpostgresqlapi.util.DateConverterUtil.parseStringToDate;
-
 @RestController
 @RequestMapping("/api/parking-spaces")
-@CrossOrigin(origins = "http://localhost:4200")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {"X-Next-Cursor", HttpHeaders.ETAG})
 public class EditedParkingSpaceController {
 
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 1000;
+    private static final int MAX_HISTORY_PAGE_SIZE = 10000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String VECTOR_TILE_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
     private final EditedParkingSpaceService editedParkingSpaceService;
-    private final ParkingPointService parkingPointService;
+    private final TimestampService timestampService;
+    private final VectorTileService vectorTileService;
+    private final OccupancyEventService occupancyEventService;
 
     @Autowired
     public EditedParkingSpaceController(EditedParkingSpaceService editedParkingSpaceService,
-        ParkingPointService parkingPointService) {
+        TimestampService timestampService, VectorTileService vectorTileService, OccupancyEventService occupancyEventService) {
         this.editedParkingSpaceService = editedParkingSpaceService;
-        this.parkingPointService = parkingPointService;
+        this.timestampService = timestampService;
+        this.vectorTileService = vectorTileService;
+        this.occupancyEventService = occupancyEventService;
     }
 
     // http://localhost:8080/api/parking-spaces
+    @GetMapping(params = {"!bbox", "!afterId", "!limit"})
+    public ResponseEntity<byte[]> getAllEditedParkingSpaces(WebRequest webRequest,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        Optional<WireFormat> format = WireFormat.fromAcceptHeader(accept);
+        if (format.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+
+        ParkingSpacesSnapshot snapshot = editedParkingSpaceService.getParkingSpacesSnapshot(format.get());
+        if (webRequest.checkNotModified(snapshot.eTag())) {
+            return null; // 304 with the ETag is already prepared
+        }
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                                            .eTag(snapshot.eTag())
+                                                            .contentType(format.get().getMediaType())
+                                                            .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzippedJson());
+        }
+        return response.body(snapshot.json());
+    }
+
+    // http://localhost:8080/api/parking-spaces?bbox=13.30,52.50,13.45,52.55&afterId=0&limit=500
     @GetMapping
-    public ResponseEntity<List<EditedParkingSpaceDto>> getAllEditedParkingSpaces() {
-        List<EditedParkingSpaceDto> editedParkingSpaceDtos = editedParkingSpaceService.getAllEditedParkingSpacesAsDto();
-        if (editedParkingSpaceDtos.isEmpty()) {
+    public ResponseEntity<List<EditedParkingSpaceDto>> getEditedParkingSpacesPage(
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "limit", required = false) Integer limit) {
+
+        try {
+            BoundingBox boundingBox = bbox != null ? BoundingBox.parse(bbox) : null;
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<EditedParkingSpaceDto> editedParkingSpaceDtos = editedParkingSpaceService
+                .getEditedParkingSpacesPageAsDto(boundingBox, afterId != null ? afterId : 0, pageSize);
+            if (editedParkingSpaceDtos.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+
+            // A full page may be followed by another one, which starts after its last id
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (editedParkingSpaceDtos.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(editedParkingSpaceDtos.get(pageSize - 1).getId()));
+            }
+            return response.body(editedParkingSpaceDtos);
+
+        } catch(IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // http://localhost:8080/api/parking-spaces/tiles/15/17603/10747.mvt
+    @GetMapping(value = "/tiles/{z}/{x}/{y}.mvt", produces = VECTOR_TILE_MEDIA_TYPE)
+    public ResponseEntity<byte[]> getVectorTile(@PathVariable("z") int z, @PathVariable("x") int x, @PathVariable("y") int y) {
+        if (!VectorTileService.isValidTile(z, x, y)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        byte[] tile = vectorTileService.getTile(z, x, y);
+        if (tile.length == 0) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(editedParkingSpaceDtos);
+        return ResponseEntity.ok(tile);
     }
 
     // http://localhost:8080/api/parking-spaces/1
@@ -61,12 +144,24 @@ public class EditedParkingSpaceController {
 
     // http://localhost:8080/api/parking-spaces/search?occupied=true
     @GetMapping("/search")
-    public ResponseEntity<List<EditedParkingSpaceDto>> findEditedParkingSpacesByOccupancy(@RequestParam("occupied") boolean occupied) {
-        List<EditedParkingSpaceDto> editedParkingSpaceDtos = editedParkingSpaceService.getEditedParkingSpacesByOccupancyAsDto(occupied);
-        if (editedParkingSpaceDtos.isEmpty()) {
+    public ResponseEntity<StreamingResponseBody> findEditedParkingSpacesByOccupancy(@RequestParam("occupied") boolean occupied,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        Optional<WireFormat> format = WireFormat.fromAcceptHeader(accept);
+        if (format.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+        if (!editedParkingSpaceService.existsEditedParkingSpaceByOccupancy(occupied)) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(editedParkingSpaceDtos);
+
+        // Written page by page after the handler returned
+        StreamingResponseBody body = outputStream ->
+            editedParkingSpaceService.writeEditedParkingSpacesByOccupancy(occupied, format.get(), outputStream);
+        return ResponseEntity.ok()
+                             .contentType(format.get().getMediaType())
+                             .varyBy(HttpHeaders.ACCEPT)
+                             .body(body);
     }
 
     // http://localhost:8080/api/parking-spaces/1/polygon
@@ -91,6 +186,13 @@ public class EditedParkingSpaceController {
         }
     }
 
+    // http://localhost:8080/api/parking-spaces/stream
+    // Pushes 'occupancy' events {id, occupied, version}, and a 'resync' event if the client has to reload the full list
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOccupancyChanges() {
+        return occupancyEventService.subscribe();
+    }
+
     // http://localhost:8080/api/parking-spaces/1/neighbors
     @GetMapping("/{id}/neighbors")
     public ResponseEntity<List<Long>> getNeighborIds(@PathVariable Long id) {
@@ -99,29 +201,30 @@ public class EditedParkingSpaceController {
     }
 
     // http://localhost:8080/api/parking-spaces/1/history
+    // http://localhost:8080/api/parking-spaces/1/history?from=2023-06-01T00:00:00Z&to=2023-07-01T00:00:00Z&limit=100
     @GetMapping("/{id}/history")
-    public ResponseEntity<List<String>> getAllTimestampsByEditedParkingSpaceId(@PathVariable long id) {
-
-        List<String> timestampsAsStrings = new ArrayList<>();
-        List<Date> timestampsAsDates = new ArrayList<>();
-
-        try {
-            for (ParkingPoint parkingPoint : parkingPointService.getAllParkingPointsByEditedParkingSpaceId(id)) {
-                timestampsAsStrings.addAll(parkingPoint.getTimestamps().stream().map(Timestamp::getTimestamp).toList());
-            }
-
-            for (String timestampStr : timestampsAsStrings) {
-                timestampsAsDates.add(parseStringToDate(timestampStr));
-            }
-        } catch(ParseException exception) {
-            return ResponseEntity.internalServerError().build();
+    public ResponseEntity<List<String>> getAllTimestampsByEditedParkingSpaceId(@PathVariable long id,
+        @RequestParam(value = "from", required = false) Instant from,
+        @RequestParam(value = "to", required = false) Instant to,
+        @RequestParam(value = "after", required = false) Instant after,
+        @RequestParam(value = "limit", required = false) Integer limit) {
+
+        int pageSize = limit != null ? limit : DEFAULT_HISTORY_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE_SIZE || (from != null && to != null && !from.isBefore(to))) {
+            return ResponseEntity.badRequest().build();
         }
 
-        // Sort dates, format them back to strings and remove duplicates
-        Collections.sort(timestampsAsDates);
-        timestampsAsStrings.clear();
-        timestampsAsDates.forEach(t -> timestampsAsStrings.add(formatDateToString(t)));
+        // Sorted and without duplicates from the database
+        List<Instant> timestamps = timestampService.getHistoryOfEditedParkingSpace(id, from, to, after, pageSize);
+        if (timestamps.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
 
-        return ResponseEntity.ok( new ArrayList<>(new LinkedHashSet<>(timestampsAsStrings)));
+        // The cursor is the last time as ISO-8601 instant, to be passed as 'after' for the next page
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (timestamps.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, timestamps.get(pageSize - 1).toString());
+        }
+        return response.body(timestamps.stream().map(DateConverterUtil::formatInstantToString).toList());
     }
 }
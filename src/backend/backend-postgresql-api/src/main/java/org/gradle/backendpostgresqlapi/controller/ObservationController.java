@@ -0,0 +1,83 @@
+package org.gradle.backendpostgresqlapi.controller;
+
+import com.fasterxml.jackson.core.JacksonException;
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.ObservationBatchStatus;
+import org.gradle.backendpostgresqlapi.dto.ObservationQueueStatus;
+import org.gradle.backendpostgresqlapi.service.ObservationIngestService;
+import org.gradle.backendpostgresqlapi.util.JsonHandler;
+import org.gradle.backendpostgresqlapi.util.ObservationBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/observations")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER})
+public class ObservationController {
+
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String GEO_JSON_MEDIA_TYPE = "application/geo+json";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ObservationIngestService observationIngestService;
+
+    @Autowired
+    public ObservationController(ObservationIngestService observationIngestService) {
+        this.observationIngestService = observationIngestService;
+    }
+
+    // http://localhost:8080/api/observations with one {"lon":..,"lat":..,"epochMillis":..} per line
+    // or a GeoJSON feature collection in the format of the data files
+    @PostMapping(consumes = {NDJSON_MEDIA_TYPE, GEO_JSON_MEDIA_TYPE, "application/json"})
+    public ResponseEntity<?> postObservations(InputStream body,
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) throws IOException {
+
+        ObservationBuffer observations;
+        try {
+            observations = JsonHandler.readObservations(body, contentType.startsWith(NDJSON_MEDIA_TYPE),
+                observationIngestService.getMaxBatchObservations());
+        } catch (IllegalArgumentException | JacksonException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (observations.isEmpty()) {
+            return ResponseEntity.badRequest().body("No observations");
+        }
+
+        Optional<ObservationBatchStatus> status = observationIngestService.submit(observations);
+        if (status.isEmpty()) {
+            log.warn("Observation queue is full, rejected a batch of {} observations.", observations.size());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                                 .build();
+        }
+
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                                                  .path("/batches/{id}")
+                                                  .buildAndExpand(status.get().id())
+                                                  .toUri();
+        return ResponseEntity.accepted().location(location).body(status.get());
+    }
+
+    // http://localhost:8080/api/observations/batches/{id}
+    @GetMapping("/batches/{id}")
+    public ResponseEntity<ObservationBatchStatus> getBatchStatus(@PathVariable UUID id) {
+        return ResponseEntity.of(observationIngestService.getBatchStatus(id));
+    }
+
+    // http://localhost:8080/api/observations/queue
+    @GetMapping("/queue")
+    public ObservationQueueStatus getQueueStatus() {
+        return observationIngestService.getQueueStatus();
+    }
+}
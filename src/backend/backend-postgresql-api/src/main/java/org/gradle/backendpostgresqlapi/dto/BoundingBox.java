@@ -0,0 +1,34 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+/**
+ * Bounding box of a map viewport in WGS84 degrees.
+ */
+public record BoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+
+    /**
+     * Parses a bounding box given as 'minLon,minLat,maxLon,maxLat'.
+     *
+     * @throws IllegalArgumentException if the value is not a valid bounding box
+     */
+    public static BoundingBox parse(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Bounding box must have the format 'minLon,minLat,maxLon,maxLat': " + value);
+        }
+
+        double[] bounds = new double[4];
+        for (int i = 0; i < 4; i++) {
+            bounds[i] = Double.parseDouble(parts[i].trim());
+            if (!Double.isFinite(bounds[i])) {
+                throw new IllegalArgumentException("Bounding box contains an invalid number: " + value);
+            }
+        }
+
+        BoundingBox boundingBox = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3]);
+        if (boundingBox.minLon() > boundingBox.maxLon() || boundingBox.minLat() > boundingBox.maxLat()
+            || boundingBox.minLon() < -180 || boundingBox.maxLon() > 180 || boundingBox.minLat() < -90 || boundingBox.maxLat() > 90) {
+            throw new IllegalArgumentException("Bounding box is out of range: " + value);
+        }
+        return boundingBox;
+    }
+}
@@ -0,0 +1,11 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import java.time.Instant;
+
+/**
+ * Projection of an edited parking space on the time of its latest observation.
+ */
+public interface EditedParkingSpaceLastSeen {
+    Long getId();
+    Instant getLastSeen();
+}
@@ -0,0 +1,9 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+/**
+ * Projection of an edited parking space on its occupancy.
+ */
+public interface EditedParkingSpaceOccupancy {
+    Long getId();
+    boolean isOccupied();
+}
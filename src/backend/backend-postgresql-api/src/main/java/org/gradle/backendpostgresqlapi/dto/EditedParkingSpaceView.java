@@ -0,0 +1,18 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.gradle.backendpostgresqlapi.enums.ParkingPosition;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Projection of an edited parking space on the columns of {@link EditedParkingSpaceDto}, so that reading
+ * it does not touch its parking points and timestamps.
+ */
+public interface EditedParkingSpaceView {
+    Long getId();
+    Long getParkingSpaceId();
+    Polygon getPolygon();
+    boolean isOccupied();
+    double getArea();
+    Integer getCapacity();
+    ParkingPosition getPosition();
+}
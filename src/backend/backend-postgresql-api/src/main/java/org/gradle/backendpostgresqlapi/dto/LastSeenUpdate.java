@@ -0,0 +1,14 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import java.time.Instant;
+
+/**
+ * Result of updating the last seen time of an edited parking space with newly loaded observations.
+ *
+ * @param editedParkingSpaceId the id of the edited parking space
+ * @param lastSeen the new time of its latest observation
+ * @param occupied the new occupancy
+ * @param occupancyChanged whether the occupancy differs from the one before the update
+ */
+public record LastSeenUpdate(long editedParkingSpaceId, Instant lastSeen, boolean occupied, boolean occupancyChanged) {
+}
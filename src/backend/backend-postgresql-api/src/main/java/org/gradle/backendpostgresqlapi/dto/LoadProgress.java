@@ -0,0 +1,17 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.gradle.backendpostgresqlapi.enums.LoadState;
+
+import java.time.Instant;
+
+/**
+ * Progress of a stage or a file of the startup data load.
+ *
+ * @param name the stage or the path of the file
+ * @param rows the number of rows read or written, counted with every committed chunk while the stage or file is running
+ * @param rowsPerSecond the rows divided by the duration so far
+ * @param error the reason of a failure, null otherwise
+ */
+public record LoadProgress(String name, LoadState state, Instant startedAt, Instant completedAt, long rows,
+    double rowsPerSecond, String error) {
+}
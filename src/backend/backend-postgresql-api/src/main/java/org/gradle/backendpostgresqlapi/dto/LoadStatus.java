@@ -0,0 +1,15 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.gradle.backendpostgresqlapi.enums.LoadState;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Status of the startup data load, which runs in the background while the API is already served.
+ *
+ * @param ready true once all stages are completed, the readiness probe reports the same
+ */
+public record LoadStatus(LoadState state, boolean ready, Instant startedAt, Instant completedAt,
+    List<LoadProgress> stages, List<LoadProgress> files, String error) {
+}
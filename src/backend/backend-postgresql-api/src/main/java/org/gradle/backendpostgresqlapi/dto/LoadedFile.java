@@ -0,0 +1,23 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+/**
+ * Entry of the ledger of loaded data files.
+ *
+ * @param sha256 the hex encoded SHA-256 hash of the content of the file
+ * @param lastModified the modification time of the file in epoch milliseconds, null if unknown
+ * @param rowOffset the number of rows at the start of the file whose results are committed
+ * @param completed true once the whole file is loaded
+ */
+public record LoadedFile(String path, String sha256, long size, Long lastModified, long rowOffset, boolean completed) {
+
+    public boolean hasContent(String sha256, long size) {
+        return this.size == size && this.sha256.equals(sha256);
+    }
+
+    /**
+     * Checks if a file is unchanged without reading it. A file of the same size and modification time is not hashed again.
+     */
+    public boolean hasAttributes(long size, Long lastModified) {
+        return this.size == size && lastModified != null && lastModified.equals(this.lastModified);
+    }
+}
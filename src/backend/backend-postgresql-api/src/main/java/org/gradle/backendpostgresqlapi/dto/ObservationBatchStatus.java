@@ -0,0 +1,32 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.gradle.backendpostgresqlapi.enums.ObservationBatchState;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Status of a batch of observations received by the ingest API.
+ *
+ * @param completedAt the time the batch was loaded or failed, null before
+ * @param error the reason of a failure, null otherwise
+ */
+public record ObservationBatchStatus(UUID id, ObservationBatchState state, int observations, Instant receivedAt,
+    Instant completedAt, String error) {
+
+    public static ObservationBatchStatus queued(UUID id, int observations, Instant receivedAt) {
+        return new ObservationBatchStatus(id, ObservationBatchState.QUEUED, observations, receivedAt, null, null);
+    }
+
+    public ObservationBatchStatus processing() {
+        return new ObservationBatchStatus(id, ObservationBatchState.PROCESSING, observations, receivedAt, null, null);
+    }
+
+    public ObservationBatchStatus completed(Instant completedAt) {
+        return new ObservationBatchStatus(id, ObservationBatchState.COMPLETED, observations, receivedAt, completedAt, null);
+    }
+
+    public ObservationBatchStatus failed(Instant completedAt, String error) {
+        return new ObservationBatchStatus(id, ObservationBatchState.FAILED, observations, receivedAt, completedAt, error);
+    }
+}
@@ -0,0 +1,15 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+/**
+ * Fill level and throughput of the queue of the observation ingest API.
+ *
+ * @param queuedBatches the number of batches waiting or being loaded
+ * @param queuedObservations the number of observations in these batches
+ * @param capacity the maximal number of queued observations
+ * @param lagMillis the age of the oldest batch which is not loaded yet, 0 if there is none
+ * @param processedObservations the number of observations loaded since the start
+ * @param failedBatches the number of batches which could not be loaded since the start
+ */
+public record ObservationQueueStatus(int queuedBatches, long queuedObservations, long capacity, long lagMillis,
+    long processedObservations, long failedBatches) {
+}
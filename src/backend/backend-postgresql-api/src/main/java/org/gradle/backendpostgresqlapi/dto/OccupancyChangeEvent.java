@@ -0,0 +1,11 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+/**
+ * Occupancy of an edited parking space as pushed to subscribed clients.
+ *
+ * @param id the id of the edited parking space
+ * @param occupied the new occupancy
+ * @param version the data version after the change, see the snapshot of all edited parking spaces
+ */
+public record OccupancyChangeEvent(long id, boolean occupied, long version) {
+}
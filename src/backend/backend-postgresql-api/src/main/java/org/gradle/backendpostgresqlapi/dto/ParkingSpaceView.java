@@ -0,0 +1,15 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Projection of a parking space on the columns the ingest decides with, so that building the
+ * in-memory index does not load the entities with their overlapping parking spaces.
+ */
+public interface ParkingSpaceView {
+    Long getId();
+    Polygon getPolygon();
+    double getArea();
+    Point getCentroid();
+}
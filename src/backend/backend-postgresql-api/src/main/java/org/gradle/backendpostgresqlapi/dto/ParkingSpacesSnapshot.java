@@ -0,0 +1,40 @@
+package org.gradle.backendpostgresqlapi.dto;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, pre-serialized list of all edited parking spaces. The arrays must not be modified after creation.
+ *
+ * @param version the data version the snapshot was built for
+ * @param eTag the entity tag derived from the serialized content, so it stays valid across restarts
+ * @param json the list serialized as JSON
+ * @param gzippedJson the JSON compressed with gzip
+ * @param size the number of edited parking spaces in the list
+ */
+public record ParkingSpacesSnapshot(long version, String eTag, byte[] json, byte[] gzippedJson, int size) {
+
+    public static ParkingSpacesSnapshot of(long version, byte[] json, int size) {
+        // Weak, because the same tag is sent for the plain and the gzipped representation
+        String eTag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        return new ParkingSpacesSnapshot(version, eTag, json, gzip(json), size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
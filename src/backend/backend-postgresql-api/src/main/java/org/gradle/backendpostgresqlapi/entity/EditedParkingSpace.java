@@ -4,8 +4,10 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.gradle.backendpostgresqlapi.enums.ParkingPosition;
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
 import org.locationtech.jts.geom.Polygon;
 
+import java.time.Instant;
 import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -18,7 +20,9 @@ import java.util.stream.Stream;
 public class EditedParkingSpace {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = TableNameUtil.EDITED_PARKING_SPACES_SEQUENCE)
+    @SequenceGenerator(name = TableNameUtil.EDITED_PARKING_SPACES_SEQUENCE,
+        sequenceName = TableNameUtil.EDITED_PARKING_SPACES_SEQUENCE, allocationSize = TableNameUtil.SEQUENCE_ALLOCATION_SIZE)
     @Column(name = "edit_id", nullable = false)
     private Long id;
 
@@ -41,7 +45,11 @@ public class EditedParkingSpace {
     @Column(name = "edit_position")
     private ParkingPosition position;
 
-    @OneToMany(mappedBy = "editedParkingSpace", fetch = FetchType.EAGER)
+    // Time of the latest observation of one of its parking points, from which the occupancy follows
+    @Column(columnDefinition = "TIMESTAMP WITH TIME ZONE", name = "edit_last_seen")
+    private Instant lastSeen;
+
+    @OneToMany(mappedBy = "editedParkingSpace")
     private Set<ParkingPoint> parkingPoints;
 
     // default constructor only for the sake of JPA (See https://spring.io/projects/spring-data-jpa)
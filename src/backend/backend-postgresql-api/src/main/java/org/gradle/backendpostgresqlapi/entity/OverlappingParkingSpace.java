@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.gradle.backendpostgresqlapi.enums.ParkingPosition;
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
@@ -17,7 +18,9 @@ import java.util.stream.Stream;
 @Table(name = "overlapping_parking_spaces", schema = "public")
 public class OverlappingParkingSpace {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = TableNameUtil.OVERLAPPING_PARKING_SPACES_SEQUENCE)
+    @SequenceGenerator(name = TableNameUtil.OVERLAPPING_PARKING_SPACES_SEQUENCE,
+        sequenceName = TableNameUtil.OVERLAPPING_PARKING_SPACES_SEQUENCE, allocationSize = TableNameUtil.SEQUENCE_ALLOCATION_SIZE)
     @Column(name = "ops_id", nullable = false)
     private Long id;
 
@@ -34,7 +37,7 @@ public class OverlappingParkingSpace {
     @Column(columnDefinition = "GEOGRAPHY(POINT, 4326)", name = "ops_centroid", nullable = false, updatable = false)
     private Point centroid;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ops_ps_id", nullable = false)
     private ParkingSpace assignedParkingSpace;
 
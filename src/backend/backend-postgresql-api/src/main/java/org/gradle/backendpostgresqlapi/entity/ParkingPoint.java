@@ -19,14 +19,14 @@ public class ParkingPoint {
     @Column(name = "pp_id", nullable = false)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pp_eps_id")
     private EditedParkingSpace editedParkingSpace;
 
     @Column(columnDefinition = "GEOGRAPHY(POINT, 4326)", name = "pp_coordinates", nullable = false, updatable = false)
     private Point point;
 
-    @OneToMany(mappedBy = "parkingPoint", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "parkingPoint")
     private Set<Timestamp> timestamps;
 
     // default constructor only for the sake of JPA (See https://spring.io/projects/spring-data-jpa)
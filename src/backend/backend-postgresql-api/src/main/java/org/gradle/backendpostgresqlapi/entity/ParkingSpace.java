@@ -3,6 +3,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.gradle.backendpostgresqlapi.enums.ParkingPosition;
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
 import org.hibernate.annotations.DynamicInsert;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
@@ -20,7 +21,9 @@ import java.util.stream.Collectors;
 public class ParkingSpace {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = TableNameUtil.PARKING_SPACES_SEQUENCE)
+    @SequenceGenerator(name = TableNameUtil.PARKING_SPACES_SEQUENCE,
+        sequenceName = TableNameUtil.PARKING_SPACES_SEQUENCE, allocationSize = TableNameUtil.SEQUENCE_ALLOCATION_SIZE)
     @Column(name = "ps_id", nullable = false)
     private Long id;
 
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Instant;
+
 @Getter
 @Setter
 @Entity
@@ -15,12 +17,12 @@ public class Timestamp {
     @Column(name = "t_id", nullable = false)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "t_pp_id", nullable = false)
     private ParkingPoint parkingPoint;
 
-    @Column(name = "t_timestamp", nullable = false, updatable = false)
-    private String timestamp;
+    @Column(columnDefinition = "TIMESTAMP WITH TIME ZONE", name = "t_timestamp", nullable = false, updatable = false)
+    private Instant timestamp;
 
     // default constructor only for the sake of JPA (See https://spring.io/projects/spring-data-jpa)
     public Timestamp() {}
@@ -0,0 +1,11 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+/**
+ * Defines where the geometry calculations of the parking space merge pipeline are executed.
+ */
+public enum GeometryEngine {
+    // JTS inside the JVM, without any database round-trip
+    LOCAL,
+    // PostGIS queries, one per calculation step
+    DATABASE
+}
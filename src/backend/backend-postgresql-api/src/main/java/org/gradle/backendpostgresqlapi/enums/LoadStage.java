@@ -0,0 +1,13 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+/**
+ * Stages of the startup data load, in the order they start.
+ */
+public enum LoadStage {
+    INDEXES,
+    PARKING_SPACES,
+    EDITED_PARKING_SPACES,
+    PARKING_POINTS,
+    NEIGHBORS,
+    OCCUPANCY
+}
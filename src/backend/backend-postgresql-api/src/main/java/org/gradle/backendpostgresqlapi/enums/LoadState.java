@@ -0,0 +1,12 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+/**
+ * State of the startup data load, of one of its stages or of one of its files.
+ */
+public enum LoadState {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    SKIPPED
+}
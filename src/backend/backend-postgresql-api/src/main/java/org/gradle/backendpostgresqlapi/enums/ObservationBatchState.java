@@ -0,0 +1,11 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+/**
+ * Processing state of a batch of observations received by the ingest API.
+ */
+public enum ObservationBatchState {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
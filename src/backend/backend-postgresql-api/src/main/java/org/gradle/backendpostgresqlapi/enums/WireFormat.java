@@ -0,0 +1,61 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Representations of a list of edited parking spaces, selected by the Accept header of a request.
+ */
+@Getter
+public enum WireFormat {
+    // List of EditedParkingSpaceDto, coordinates as JTS objects
+    JSON(MediaType.APPLICATION_JSON),
+    // FeatureCollection of polygons, coordinates rounded to 6 decimals
+    GEOJSON(MediaType.parseMediaType("application/geo+json")),
+    // List of objects with the polygon rings as encoded polylines with precision 6
+    POLYLINE(MediaType.parseMediaType("application/vnd.parking-spaces.polyline+json")),
+    // Length-prefixed records with delta-encoded int32 vertices, see ParkingSpaceWireWriter
+    BINARY(MediaType.parseMediaType("application/vnd.parking-spaces.binary"));
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Selects the format preferred by an Accept header. A missing header or a wildcard selects JSON.
+     *
+     * @return the format or empty if none of the accepted media types is supported
+     */
+    public static Optional<WireFormat> fromAcceptHeader(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return Optional.of(JSON);
+        }
+
+        List<MediaType> acceptedMediaTypes;
+        try {
+            acceptedMediaTypes = MediaType.parseMediaTypes(accept);
+            // Orders by quality first, then by specificity
+            MimeTypeUtils.sortBySpecificity(acceptedMediaTypes);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        for (MediaType acceptedMediaType : acceptedMediaTypes) {
+            if (acceptedMediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (WireFormat format : values()) {
+                if (acceptedMediaType.includes(format.mediaType)) {
+                    return Optional.of(format);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
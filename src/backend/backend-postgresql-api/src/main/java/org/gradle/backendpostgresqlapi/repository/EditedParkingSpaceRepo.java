@@ -1,42 +1,163 @@
 package org.gradle.backendpostgresqlapi.repository;
 
+import jakarta.persistence.QueryHint;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceLastSeen;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceOccupancy;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
 import org.gradle.backendpostgresqlapi.entity.EditedParkingSpace;
 import org.gradle.backendpostgresqlapi.util.TableNameUtil;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional
 public interface EditedParkingSpaceRepo extends JpaRepository<EditedParkingSpace, Long> {
 
+        // Rows fetched per round trip while streaming, so that the result is read with a cursor
+        String STREAM_FETCH_SIZE = "1000";
+
         String UPDATE_AREA_SQL = 
         "UPDATE " + TableNameUtil.EDITED_PARKING_SPACES + 
         " SET edit_area = ROUND(CAST(ST_AREA(edit_coordinates) AS NUMERIC),2) " + 
         "WHERE edit_id = :id";
 
-        String GET_NEIGHBORS = 
-        "SELECT p2.edit_id " + 
-        "FROM " + TableNameUtil.EDITED_PARKING_SPACES + " p1 " +                       
-        "JOIN " + TableNameUtil.EDITED_PARKING_SPACES + " p2 " +
-        "ON p1.edit_id = :id AND p1.edit_id <> p2.edit_id " +
-        "AND ST_Touches(CAST(p1.edit_coordinates AS GEOMETRY), CAST(p2.edit_coordinates AS GEOMETRY))";
+        String CREATE_PARKING_SPACE_ID_INDEX_SQL =
+        "CREATE INDEX IF NOT EXISTS edit_ps_id_idx ON " + TableNameUtil.EDITED_PARKING_SPACES +
+        " (edit_ps_id)";
+
+        String CREATE_COORDINATES_INDEX_SQL =
+        "CREATE INDEX IF NOT EXISTS edit_coordinates_idx ON " + TableNameUtil.EDITED_PARKING_SPACES +
+        " USING GIST (edit_coordinates)";
+
+        // The bounding box operator selects the candidates with the spatial index, ST_Intersects removes false positives
+        String FIND_PAGE_IN_BOUNDING_BOX_SQL =
+        "SELECT * FROM " + TableNameUtil.EDITED_PARKING_SPACES +
+        " WHERE edit_coordinates && CAST(ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326) AS GEOGRAPHY)" +
+        " AND ST_Intersects(edit_coordinates, CAST(ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326) AS GEOGRAPHY))" +
+        " AND edit_id > :afterId" +
+        " ORDER BY edit_id LIMIT :limit";
+
+        // Polygons are clipped to the tile in Web Mercator, the attributes become feature properties
+        String GET_VECTOR_TILE_SQL =
+        "WITH bounds AS (SELECT ST_TileEnvelope(:z, :x, :y) AS geom)," +
+        " features AS (SELECT ST_AsMVTGeom(ST_Transform(CAST(eps.edit_coordinates AS GEOMETRY), 3857), bounds.geom) AS geom," +
+        " eps.edit_id AS id, eps.edit_occupied AS occupied, eps.edit_capacity AS capacity, eps.edit_position AS position" +
+        " FROM " + TableNameUtil.EDITED_PARKING_SPACES + " eps, bounds" +
+        " WHERE eps.edit_coordinates && CAST(ST_Transform(bounds.geom, 4326) AS GEOGRAPHY))" +
+        " SELECT ST_AsMVT(features, '" + TableNameUtil.PARKING_SPACES_TILE_LAYER + "', 4096, 'geom', 'id') FROM features";
+
+        String SYNCHRONIZE_ID_SEQUENCE_SQL =
+        "SELECT setval('" + TableNameUtil.EDITED_PARKING_SPACES_SEQUENCE + "'," +
+        " (SELECT COALESCE(MAX(edit_id), 0) FROM " + TableNameUtil.EDITED_PARKING_SPACES + ") + " + TableNameUtil.SEQUENCE_ALLOCATION_SIZE + ")";
+
+        // Copies the parking spaces after the given id, which have no edited parking space yet, in one statement.
+        // Ids continue after the highest existing one and after the ids already handed out by the sequence,
+        // the id sequence has to be synchronized afterward
+        String COPY_PARKING_SPACES_SQL =
+        "INSERT INTO " + TableNameUtil.EDITED_PARKING_SPACES +
+        " (edit_id, edit_ps_id, edit_coordinates, edit_occupied, edit_area, edit_capacity, edit_position)" +
+        " SELECT GREATEST((SELECT COALESCE(MAX(edit_id), 0) FROM " + TableNameUtil.EDITED_PARKING_SPACES + ")," +
+        " (SELECT last_value FROM " + TableNameUtil.EDITED_PARKING_SPACES_SEQUENCE + "))" +
+        " + ROW_NUMBER() OVER (ORDER BY ps.ps_id)," +
+        " ps.ps_id, ps.ps_coordinates, FALSE, ps.ps_area, ps.ps_capacity, ps.ps_position" +
+        " FROM " + TableNameUtil.PARKING_SPACES + " ps" +
+        " WHERE ps.ps_id > :afterId" +
+        " AND NOT EXISTS (SELECT 1 FROM " + TableNameUtil.EDITED_PARKING_SPACES + " eps WHERE eps.edit_ps_id = ps.ps_id)";
+
+        String FIND_LAST_COPIED_PARKING_SPACE_ID_SQL =
+        "SELECT COALESCE(MAX(edit_ps_id), 0) FROM " + TableNameUtil.EDITED_PARKING_SPACES;
+
+        // Sets the last seen time of edited parking spaces, which were stored before the column existed
+        String BACKFILL_LAST_SEEN_SQL =
+        "UPDATE " + TableNameUtil.EDITED_PARKING_SPACES + " eps" +
+        " SET edit_last_seen = (SELECT MAX(t.t_timestamp) FROM " + TableNameUtil.PARKING_POINTS + " pp" +
+        " JOIN " + TableNameUtil.TIMESTAMPS + " t ON t.t_pp_id = pp.pp_id" +
+        " WHERE pp.pp_eps_id = eps.edit_id)" +
+        " WHERE eps.edit_last_seen IS NULL";
+
+        // Only rows whose status changes are written, so the number of updated rows is the number of changes
+        String UPDATE_OCCUPANCY_STATUS_SQL =
+        "UPDATE " + TableNameUtil.EDITED_PARKING_SPACES +
+        " SET edit_occupied = COALESCE(edit_last_seen > now() - make_interval(days => :days), FALSE)" +
+        " WHERE edit_occupied IS DISTINCT FROM COALESCE(edit_last_seen > now() - make_interval(days => :days), FALSE)" +
+        " RETURNING edit_id AS id, edit_occupied AS occupied";
+
+        String EXPIRE_OCCUPANCY_SQL =
+        "UPDATE " + TableNameUtil.EDITED_PARKING_SPACES +
+        " SET edit_occupied = FALSE" +
+        " WHERE edit_id IN (:ids) AND edit_occupied" +
+        " AND (edit_last_seen IS NULL OR edit_last_seen <= now() - make_interval(days => :days))" +
+        " RETURNING edit_id";
 
         @Modifying
         @Query(value = UPDATE_AREA_SQL, nativeQuery = true)
         void updateAreaColumnById(@Param("id") long id);
 
-        List<EditedParkingSpace> findByOccupied(boolean occupied);
+        @Modifying
+        @Query(value = CREATE_PARKING_SPACE_ID_INDEX_SQL, nativeQuery = true)
+        void createParkingSpaceIdIndex();
 
-        boolean existsByParkingSpaceId(long id);
+        @Modifying
+        @Query(value = BACKFILL_LAST_SEEN_SQL, nativeQuery = true)
+        int backfillLastSeen();
 
-        EditedParkingSpace getEditedParkingSpaceByParkingSpaceId(long id);
+        // Not @Modifying, because the changed rows are returned
+        @Query(value = UPDATE_OCCUPANCY_STATUS_SQL, nativeQuery = true)
+        List<EditedParkingSpaceOccupancy> updateOccupancyStatus(@Param("days") int daysForValidOccupancy);
+
+        @Query(value = EXPIRE_OCCUPANCY_SQL, nativeQuery = true)
+        List<Long> expireOccupancy(@Param("ids") Collection<Long> ids, @Param("days") int daysForValidOccupancy);
+
+        List<EditedParkingSpaceLastSeen> findByOccupiedTrueAndLastSeenNotNull();
 
-        @Query(value = GET_NEIGHBORS, nativeQuery = true)
-        List<Long> findNeighborIds(@Param("id") Long id);
+        @Modifying
+        @Query(value = CREATE_COORDINATES_INDEX_SQL, nativeQuery = true)
+        void createCoordinatesIndex();
+
+        @Query(value = FIND_PAGE_IN_BOUNDING_BOX_SQL, nativeQuery = true)
+        List<EditedParkingSpace> findPageInBoundingBox(@Param("minLon") double minLon, @Param("minLat") double minLat,
+                @Param("maxLon") double maxLon, @Param("maxLat") double maxLat, @Param("afterId") long afterId,
+                @Param("limit") int limit);
+
+        List<EditedParkingSpaceView> findProjectedByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+
+        List<EditedParkingSpaceView> findProjectedByOccupiedAndIdGreaterThanOrderByIdAsc(boolean occupied, long afterId, Limit limit);
+
+        @Query(value = GET_VECTOR_TILE_SQL, nativeQuery = true)
+        byte[] getVectorTile(@Param("z") int z, @Param("x") int x, @Param("y") int y);
+
+        List<EditedParkingSpaceView> findProjectedByIdIn(Collection<Long> ids);
+
+        @Query(value = SYNCHRONIZE_ID_SEQUENCE_SQL, nativeQuery = true)
+        long synchronizeIdSequence();
+
+        @Modifying
+        @Query(value = COPY_PARKING_SPACES_SQL, nativeQuery = true)
+        int copyParkingSpaces(@Param("afterId") long afterParkingSpaceId);
+
+        // Served by the index on edit_ps_id
+        @Query(value = FIND_LAST_COPIED_PARKING_SPACE_ID_SQL, nativeQuery = true)
+        long findLastCopiedParkingSpaceId();
+
+        // Streams must be consumed inside a surrounding transaction, which keeps the cursor open
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        Stream<EditedParkingSpaceView> streamAllProjectedByOrderByIdAsc();
+
+        boolean existsByOccupied(boolean occupied);
+
+        Optional<EditedParkingSpaceView> findProjectedById(long id);
+
+        EditedParkingSpace getEditedParkingSpaceByParkingSpaceId(long id);
 }
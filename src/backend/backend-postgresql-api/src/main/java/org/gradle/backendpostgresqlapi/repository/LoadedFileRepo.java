@@ -0,0 +1,91 @@
+package org.gradle.backendpostgresqlapi.repository;
+
+import org.gradle.backendpostgresqlapi.dto.LoadedFile;
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Ledger of the data files loaded at startup, with their content fingerprint, size and modification time, and a
+ * checkpoint of the rows whose results are committed. Checkpoints are written in the transaction of the rows they cover.
+ */
+@Repository
+public class LoadedFileRepo {
+
+    private static final String CREATE_TABLE_SQL =
+    "CREATE TABLE IF NOT EXISTS " + TableNameUtil.LOADED_FILES +
+    " (lf_path TEXT PRIMARY KEY, lf_sha256 CHAR(64) NOT NULL, lf_size BIGINT NOT NULL," +
+    " lf_row_offset BIGINT NOT NULL DEFAULT 0, lf_completed BOOLEAN NOT NULL DEFAULT FALSE," +
+    " lf_updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), lf_last_modified BIGINT)";
+
+    // Tables created before the modification time was recorded get the column, their files are hashed once more
+    private static final String ADD_LAST_MODIFIED_COLUMN_SQL =
+    "ALTER TABLE " + TableNameUtil.LOADED_FILES + " ADD COLUMN IF NOT EXISTS lf_last_modified BIGINT";
+
+    private static final String FIND_BY_PATH_SQL =
+    "SELECT lf_path, lf_sha256, lf_size, lf_last_modified, lf_row_offset, lf_completed FROM " + TableNameUtil.LOADED_FILES +
+    " WHERE lf_path = ?";
+
+    private static final String START_SQL =
+    "INSERT INTO " + TableNameUtil.LOADED_FILES + " (lf_path, lf_sha256, lf_size, lf_last_modified)" +
+    " VALUES (?, ?, ?, ?)" +
+    " ON CONFLICT (lf_path) DO UPDATE SET lf_sha256 = EXCLUDED.lf_sha256, lf_size = EXCLUDED.lf_size," +
+    " lf_last_modified = EXCLUDED.lf_last_modified, lf_row_offset = 0, lf_completed = FALSE, lf_updated_at = now()";
+
+    private static final String UPDATE_LAST_MODIFIED_SQL =
+    "UPDATE " + TableNameUtil.LOADED_FILES +
+    " SET lf_last_modified = ?, lf_updated_at = now() WHERE lf_path = ?";
+
+    private static final String UPDATE_ROW_OFFSET_SQL =
+    "UPDATE " + TableNameUtil.LOADED_FILES +
+    " SET lf_row_offset = ?, lf_updated_at = now() WHERE lf_path = ?";
+
+    private static final String COMPLETE_SQL =
+    "UPDATE " + TableNameUtil.LOADED_FILES +
+    " SET lf_row_offset = ?, lf_completed = TRUE, lf_updated_at = now() WHERE lf_path = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoadedFileRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.execute(ADD_LAST_MODIFIED_COLUMN_SQL);
+    }
+
+    public Optional<LoadedFile> findByPath(String path) {
+        return jdbcTemplate.query(FIND_BY_PATH_SQL, (resultSet, rowNum) -> new LoadedFile(resultSet.getString(1),
+            resultSet.getString(2), resultSet.getLong(3), resultSet.getObject(4, Long.class), resultSet.getLong(5),
+            resultSet.getBoolean(6)), path)
+                           .stream()
+                           .findFirst();
+    }
+
+    /**
+     * Records that a file with the given content is loaded from its first row, replacing any previous entry.
+     */
+    public void start(String path, String sha256, long size, Long lastModified) {
+        jdbcTemplate.update(START_SQL, path, sha256, size, lastModified);
+    }
+
+    /**
+     * Records the modification time of a file whose content is unchanged, so that it is not hashed again.
+     */
+    public void updateLastModified(String path, Long lastModified) {
+        jdbcTemplate.update(UPDATE_LAST_MODIFIED_SQL, lastModified, path);
+    }
+
+    public void updateRowOffset(String path, long rowOffset) {
+        jdbcTemplate.update(UPDATE_ROW_OFFSET_SQL, rowOffset, path);
+    }
+
+    public void complete(String path, long rows) {
+        jdbcTemplate.update(COMPLETE_SQL, rows, path);
+    }
+}
@@ -0,0 +1,244 @@
+package org.gradle.backendpostgresqlapi.repository;
+
+import org.gradle.backendpostgresqlapi.dto.LastSeenUpdate;
+import org.gradle.backendpostgresqlapi.util.ObservationBuffer;
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Bulk loads parking points and their timestamps through staging tables. The observations are streamed
+ * with COPY into a temporary table and then merged into the 'parking_points' and 'timestamps' tables with
+ * set-based statements. All methods have to be called inside the same transaction, because the staging
+ * tables only exist in its session and are dropped on commit.
+ */
+@Repository
+public class ParkingPointStagingRepo {
+
+    // Number of characters which are collected before they are sent to the COPY stream
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    // Arbitrary key of the advisory lock, which serializes the merges of concurrent loads
+    private static final long MERGE_LOCK_KEY = 7_203_410_582L;
+
+    private static final String LOCK_MERGE_SQL =
+    "SELECT pg_advisory_xact_lock(" + MERGE_LOCK_KEY + ")";
+
+    private static final String CREATE_OBSERVATIONS_STAGING_SQL =
+    "CREATE TEMPORARY TABLE " + TableNameUtil.OBSERVATIONS_STAGING +
+    " (so_lon DOUBLE PRECISION NOT NULL, so_lat DOUBLE PRECISION NOT NULL, so_epoch_millis BIGINT NOT NULL)" +
+    " ON COMMIT DROP";
+
+    private static final String COPY_OBSERVATIONS_SQL =
+    "COPY " + TableNameUtil.OBSERVATIONS_STAGING + " (so_lon, so_lat, so_epoch_millis) FROM STDIN";
+
+    private static final String CREATE_PARKING_POINTS_STAGING_SQL =
+    "CREATE TEMPORARY TABLE " + TableNameUtil.PARKING_POINTS_STAGING + " ON COMMIT DROP AS" +
+    " SELECT ROW_NUMBER() OVER () AS sp_key, so_lon AS sp_lon, so_lat AS sp_lat," +
+    " CAST(ST_SetSRID(ST_MakePoint(so_lon, so_lat), 4326) AS GEOGRAPHY) AS sp_coordinates," +
+    " CAST(NULL AS BIGINT) AS sp_pp_id, CAST(NULL AS BIGINT) AS sp_eps_id" +
+    " FROM (SELECT DISTINCT so_lon, so_lat FROM " + TableNameUtil.OBSERVATIONS_STAGING + ") AS distinct_points";
+
+    private static final String ANALYZE_PARKING_POINTS_STAGING_SQL =
+    "ANALYZE " + TableNameUtil.PARKING_POINTS_STAGING;
+
+    // The bounding box operator lets the spatial index of 'parking_points' find the candidates for ST_Equals
+    private static final String RESOLVE_EXISTING_PARKING_POINTS_SQL =
+    "UPDATE " + TableNameUtil.PARKING_POINTS_STAGING + " sp" +
+    " SET sp_pp_id = pp.pp_id" +
+    " FROM " + TableNameUtil.PARKING_POINTS + " pp" +
+    " WHERE sp.sp_pp_id IS NULL AND pp.pp_coordinates && sp.sp_coordinates" +
+    " AND ST_Equals(CAST(pp.pp_coordinates AS GEOMETRY), CAST(sp.sp_coordinates AS GEOMETRY))";
+
+    // A new point belongs to the edited parking space of the parking space containing it, otherwise of the overlapping
+    // parking space containing it. If that parking space has no edited parking space or there is none, the point belongs
+    // to the edited parking space of the parking space with the closest centroid within the distance
+    private static final String ASSIGN_EDITED_PARKING_SPACES_SQL =
+    "UPDATE " + TableNameUtil.PARKING_POINTS_STAGING + " sp" +
+    " SET sp_eps_id = resolved.edit_id" +
+    " FROM (SELECT candidate.sp_key, COALESCE(assigned.edit_id, closest.edit_id) AS edit_id" +
+    " FROM " + TableNameUtil.PARKING_POINTS_STAGING + " candidate" +
+    " LEFT JOIN LATERAL (SELECT ps_id FROM " + TableNameUtil.PARKING_SPACES +
+    " WHERE ps_coordinates && candidate.sp_coordinates" +
+    " AND ST_Contains(CAST(ps_coordinates AS GEOMETRY), CAST(candidate.sp_coordinates AS GEOMETRY))" +
+    " LIMIT 1) containing ON TRUE" +
+    " LEFT JOIN LATERAL (SELECT ops_ps_id FROM " + TableNameUtil.OVERLAPPING_PARKING_SPACES +
+    " WHERE containing.ps_id IS NULL AND ops_coordinates && candidate.sp_coordinates" +
+    " AND ST_Contains(CAST(ops_coordinates AS GEOMETRY), CAST(candidate.sp_coordinates AS GEOMETRY))" +
+    " LIMIT 1) overlapping ON TRUE" +
+    " LEFT JOIN LATERAL (SELECT edit_id FROM " + TableNameUtil.EDITED_PARKING_SPACES +
+    " WHERE edit_ps_id = COALESCE(containing.ps_id, overlapping.ops_ps_id)" +
+    " LIMIT 1) assigned ON TRUE" +
+    " LEFT JOIN LATERAL (SELECT eps.edit_id FROM " + TableNameUtil.PARKING_SPACES + " ps" +
+    " LEFT JOIN " + TableNameUtil.EDITED_PARKING_SPACES + " eps ON eps.edit_ps_id = ps.ps_id" +
+    " WHERE assigned.edit_id IS NULL" +
+    " AND ST_DWithin(ps.ps_centroid, candidate.sp_coordinates, ?)" +
+    " ORDER BY ps.ps_centroid <-> candidate.sp_coordinates LIMIT 1) closest ON TRUE" +
+    " WHERE candidate.sp_pp_id IS NULL) resolved" +
+    " WHERE sp.sp_key = resolved.sp_key AND resolved.edit_id IS NOT NULL";
+
+    private static final String INSERT_NEW_PARKING_POINTS_SQL =
+    "INSERT INTO " + TableNameUtil.PARKING_POINTS + " (pp_coordinates, pp_eps_id)" +
+    " SELECT sp_coordinates, sp_eps_id FROM " + TableNameUtil.PARKING_POINTS_STAGING +
+    " WHERE sp_pp_id IS NULL ORDER BY sp_key";
+
+    // Observation times are truncated to the precision of seconds of the stored timestamps, with exact integer arithmetic
+    private static final String OBSERVATION_TIME_SQL =
+    "to_timestamp(0) + (so.so_epoch_millis / 1000) * INTERVAL '1 second'";
+
+    private static final String INSERT_NEW_TIMESTAMPS_SQL =
+    "INSERT INTO " + TableNameUtil.TIMESTAMPS + " (t_pp_id, t_timestamp)" +
+    " SELECT DISTINCT sp.sp_pp_id, " + OBSERVATION_TIME_SQL +
+    " FROM " + TableNameUtil.OBSERVATIONS_STAGING + " so" +
+    " JOIN " + TableNameUtil.PARKING_POINTS_STAGING + " sp ON sp.sp_lon = so.so_lon AND sp.sp_lat = so.so_lat" +
+    " WHERE NOT EXISTS (SELECT 1 FROM " + TableNameUtil.TIMESTAMPS + " t" +
+    " WHERE t.t_pp_id = sp.sp_pp_id AND t.t_timestamp = " + OBSERVATION_TIME_SQL + ")";
+
+    // Moves the last seen time of the edited parking spaces forward to the newest staged observation of their points
+    // The table is joined a second time, because only the FROM clause sees the occupancy before the update
+    private static final String UPDATE_LAST_SEEN_SQL =
+    "UPDATE " + TableNameUtil.EDITED_PARKING_SPACES + " eps" +
+    " SET edit_last_seen = GREATEST(eps.edit_last_seen, latest.last_seen)," +
+    " edit_occupied = GREATEST(eps.edit_last_seen, latest.last_seen) > now() - make_interval(days => ?)" +
+    " FROM (SELECT pp.pp_eps_id, MAX(" + OBSERVATION_TIME_SQL + ") AS last_seen" +
+    " FROM " + TableNameUtil.OBSERVATIONS_STAGING + " so" +
+    " JOIN " + TableNameUtil.PARKING_POINTS_STAGING + " sp ON sp.sp_lon = so.so_lon AND sp.sp_lat = so.so_lat" +
+    " JOIN " + TableNameUtil.PARKING_POINTS + " pp ON pp.pp_id = sp.sp_pp_id" +
+    " WHERE pp.pp_eps_id IS NOT NULL GROUP BY pp.pp_eps_id) latest" +
+    " JOIN " + TableNameUtil.EDITED_PARKING_SPACES + " previous ON previous.edit_id = latest.pp_eps_id" +
+    " WHERE eps.edit_id = latest.pp_eps_id" +
+    " RETURNING eps.edit_id, eps.edit_last_seen, eps.edit_occupied," +
+    " eps.edit_occupied IS DISTINCT FROM previous.edit_occupied AS occupancy_changed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @Autowired
+    public ParkingPointStagingRepo(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    public void createObservationsStagingTable() {
+        jdbcTemplate.execute(CREATE_OBSERVATIONS_STAGING_SQL);
+    }
+
+    /**
+     * Streams a chunk of observations into the staging table with COPY. Doubles are written in their shortest
+     * exact representation, so that the database reads the same coordinates.
+     *
+     * @param observations the observations of the chunk
+     * @return the number of copied rows
+     */
+    public long copyObservations(ObservationBuffer observations) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copyIn = null;
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_OBSERVATIONS_SQL);
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+            for (int i = 0; i < observations.size(); i++) {
+                buffer.append(observations.getLon(i)).append('\t')
+                      .append(observations.getLat(i)).append('\t')
+                      .append(observations.getEpochMillis(i)).append('\n');
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            return copyIn.endCopy();
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Copying observations", COPY_OBSERVATIONS_SQL, e);
+        } finally {
+            cancelIfActive(copyIn);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static void cancelIfActive(CopyIn copyIn) {
+        try {
+            if (copyIn != null && copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException ignored) {
+            // The transaction is rolled back anyway because of the original error
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Waits until no other transaction merges observations and keeps the lock until this transaction ends.
+     * Points are matched against the committed ones, so two merges at the same time could insert the same point twice.
+     */
+    public void lockMerge() {
+        jdbcTemplate.execute(LOCK_MERGE_SQL);
+    }
+
+    /**
+     * Creates the staging table of the distinct points of the observations and links the points which already exist.
+     *
+     * @return the number of distinct points which already exist
+     */
+    public int stageParkingPoints() {
+        jdbcTemplate.execute(CREATE_PARKING_POINTS_STAGING_SQL);
+        jdbcTemplate.execute(ANALYZE_PARKING_POINTS_STAGING_SQL);
+        return jdbcTemplate.update(RESOLVE_EXISTING_PARKING_POINTS_SQL);
+    }
+
+    /**
+     * Resolves the edited parking spaces of all new points with one spatial join.
+     *
+     * @param distance the maximal distance in meters to the centroid of the closest parking space
+     * @return the number of new points which got an edited parking space
+     */
+    public int assignEditedParkingSpaces(int distance) {
+        return jdbcTemplate.update(ASSIGN_EDITED_PARKING_SPACES_SQL, distance);
+    }
+
+    /**
+     * Inserts the new points into 'parking_points' and links the staged points to their ids.
+     *
+     * @return the number of inserted points
+     */
+    public int insertNewParkingPoints() {
+        int insertedParkingPoints = jdbcTemplate.update(INSERT_NEW_PARKING_POINTS_SQL);
+        jdbcTemplate.update(RESOLVE_EXISTING_PARKING_POINTS_SQL);
+        return insertedParkingPoints;
+    }
+
+    /**
+     * Inserts the staged timestamps, which are not stored for their point yet, into 'timestamps'.
+     *
+     * @return the number of inserted timestamps
+     */
+    public int insertNewTimestamps() {
+        return jdbcTemplate.update(INSERT_NEW_TIMESTAMPS_SQL);
+    }
+
+    /**
+     * Updates the last seen time and the occupancy of the edited parking spaces of the staged observations.
+     *
+     * @param daysForValidOccupancy the number of days an observation keeps a parking space occupied
+     * @return the new last seen time and occupancy of every updated edited parking space
+     */
+    public List<LastSeenUpdate> updateLastSeen(int daysForValidOccupancy) {
+        return jdbcTemplate.query(UPDATE_LAST_SEEN_SQL, (resultSet, rowNum) -> new LastSeenUpdate(resultSet.getLong(1),
+            resultSet.getObject(2, OffsetDateTime.class).toInstant(), resultSet.getBoolean(3), resultSet.getBoolean(4)),
+            daysForValidOccupancy);
+    }
+}
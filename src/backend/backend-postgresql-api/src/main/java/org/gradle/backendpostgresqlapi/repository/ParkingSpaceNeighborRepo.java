@@ -0,0 +1,90 @@
+package org.gradle.backendpostgresqlapi.repository;
+
+import org.gradle.backendpostgresqlapi.util.TableNameUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Adjacency table of the edited parking spaces whose polygons touch. Every pair is stored in both
+ * directions, so the neighbors of a parking space are read with its primary key prefix.
+ */
+@Repository
+public class ParkingSpaceNeighborRepo {
+
+    private static final String CREATE_TABLE_SQL =
+    "CREATE TABLE IF NOT EXISTS " + TableNameUtil.PARKING_SPACE_NEIGHBORS +
+    " (psn_eps_id BIGINT NOT NULL REFERENCES " + TableNameUtil.EDITED_PARKING_SPACES + " (edit_id) ON DELETE CASCADE," +
+    " psn_neighbor_id BIGINT NOT NULL REFERENCES " + TableNameUtil.EDITED_PARKING_SPACES + " (edit_id) ON DELETE CASCADE," +
+    " PRIMARY KEY (psn_eps_id, psn_neighbor_id))";
+
+    // DELETE instead of TRUNCATE, so that lookups keep reading the previous neighbors until the commit
+    private static final String DELETE_ALL_SQL =
+    "DELETE FROM " + TableNameUtil.PARKING_SPACE_NEIGHBORS;
+
+    // The bounding box operator lets the spatial index find the candidates for ST_Touches
+    private static final String INSERT_ALL_SQL =
+    "INSERT INTO " + TableNameUtil.PARKING_SPACE_NEIGHBORS + " (psn_eps_id, psn_neighbor_id)" +
+    " SELECT p1.edit_id, p2.edit_id" +
+    " FROM " + TableNameUtil.EDITED_PARKING_SPACES + " p1" +
+    " JOIN " + TableNameUtil.EDITED_PARKING_SPACES + " p2" +
+    " ON p1.edit_id <> p2.edit_id AND p1.edit_coordinates && p2.edit_coordinates" +
+    " AND ST_Touches(CAST(p1.edit_coordinates AS GEOMETRY), CAST(p2.edit_coordinates AS GEOMETRY))";
+
+    private static final String DELETE_BY_ID_SQL =
+    "DELETE FROM " + TableNameUtil.PARKING_SPACE_NEIGHBORS +
+    " WHERE psn_eps_id = ? OR psn_neighbor_id = ?";
+
+    private static final String INSERT_BY_ID_SQL =
+    "INSERT INTO " + TableNameUtil.PARKING_SPACE_NEIGHBORS + " (psn_eps_id, psn_neighbor_id)" +
+    " SELECT pair.psn_eps_id, pair.psn_neighbor_id" +
+    " FROM " + TableNameUtil.EDITED_PARKING_SPACES + " p1" +
+    " JOIN " + TableNameUtil.EDITED_PARKING_SPACES + " p2" +
+    " ON p1.edit_id <> p2.edit_id AND p1.edit_coordinates && p2.edit_coordinates" +
+    " AND ST_Touches(CAST(p1.edit_coordinates AS GEOMETRY), CAST(p2.edit_coordinates AS GEOMETRY))" +
+    " CROSS JOIN LATERAL (VALUES (p1.edit_id, p2.edit_id), (p2.edit_id, p1.edit_id)) AS pair (psn_eps_id, psn_neighbor_id)" +
+    " WHERE p1.edit_id = ?";
+
+    private static final String FIND_NEIGHBOR_IDS_SQL =
+    "SELECT psn_neighbor_id FROM " + TableNameUtil.PARKING_SPACE_NEIGHBORS +
+    " WHERE psn_eps_id = ? ORDER BY psn_neighbor_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ParkingSpaceNeighborRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+    }
+
+    /**
+     * Replaces all pairs with the ones calculated from the current polygons.
+     *
+     * @return the number of stored pairs, two per touching parking spaces
+     */
+    @Transactional
+    public int rebuildAll() {
+        jdbcTemplate.update(DELETE_ALL_SQL);
+        return jdbcTemplate.update(INSERT_ALL_SQL);
+    }
+
+    /**
+     * Recalculates the pairs of one edited parking space, which removes it from its previous neighbors
+     * and adds it to its current ones.
+     */
+    @Transactional
+    public void rebuildById(long editedParkingSpaceId) {
+        jdbcTemplate.update(DELETE_BY_ID_SQL, editedParkingSpaceId, editedParkingSpaceId);
+        jdbcTemplate.update(INSERT_BY_ID_SQL, editedParkingSpaceId);
+    }
+
+    public List<Long> findNeighborIds(long editedParkingSpaceId) {
+        return jdbcTemplate.queryForList(FIND_NEIGHBOR_IDS_SQL, Long.class, editedParkingSpaceId);
+    }
+}
@@ -2,6 +2,7 @@ package org.gradle.backendpostgresqlapi.repository;
 
 import org.gradle.backendpostgresqlapi.entity.Timestamp;
 import org.gradle.backendpostgresqlapi.util.TableNameUtil;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,22 +10,58 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
+
 @Repository
 @Transactional
 public interface TimestampRepo extends JpaRepository<Timestamp, Long> {
 
-    String CREATE_INDEX_SQL = 
-    "CREATE INDEX IF NOT EXISTS t_timestamp_idx ON " + TableNameUtil.TIMESTAMPS + 
-    " (t_timestamp)";
-    String GET_MAX_ONE_DUPLICATE = 
-    "SELECT COUNT(*) " + 
-    "FROM " + TableNameUtil.TIMESTAMPS + 
-    " WHERE t_pp_id = :id AND t_timestamp = :timestamp LIMIT 1";
+    // Timestamps used to be stored as 'dd.MM.yyyy HH:mm:ss' strings, which are converted once. The strings were formatted
+    // in the default time zone of the JVM, which the driver sets as time zone of the session. Their precision of seconds
+    // is kept for new timestamps, so that loading the same observations again finds the converted ones
+    String MIGRATE_TIMESTAMP_COLUMN_SQL =
+    "DO $$ BEGIN" +
+    " IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = '" + TableNameUtil.TIMESTAMPS + "'" +
+    " AND column_name = 't_timestamp' AND data_type = 'character varying') THEN" +
+    " DROP INDEX IF EXISTS t_timestamp_idx;" +
+    " ALTER TABLE " + TableNameUtil.TIMESTAMPS + " ALTER COLUMN t_timestamp TYPE TIMESTAMP WITH TIME ZONE" +
+    " USING CAST(to_timestamp(t_timestamp, 'DD.MM.YYYY HH24:MI:SS') AS TIMESTAMP) AT TIME ZONE current_setting('TimeZone');" +
+    " END IF;" +
+    " END $$";
+
+    // Timestamps are appended roughly in time order, so a small BRIN index is enough for time range scans
+    String CREATE_TIME_INDEX_SQL =
+    "CREATE INDEX IF NOT EXISTS t_timestamp_brin_idx ON " + TableNameUtil.TIMESTAMPS +
+    " USING BRIN (t_timestamp)";
+
+    String CREATE_PARKING_POINT_TIME_INDEX_SQL =
+    "CREATE INDEX IF NOT EXISTS t_pp_id_timestamp_idx ON " + TableNameUtil.TIMESTAMPS +
+    " (t_pp_id, t_timestamp)";
+
+    // Answered from the (t_pp_id, t_timestamp) index of the parking points of the edited parking space. Times are
+    // distinct in seconds, the precision in which they are returned
+    String FIND_HISTORY_PAGE_SQL =
+    "SELECT DISTINCT CAST(EXTRACT(EPOCH FROM date_trunc('second', t.t_timestamp)) AS BIGINT) AS t_epoch_second" +
+    " FROM " + TableNameUtil.TIMESTAMPS + " t" +
+    " JOIN " + TableNameUtil.PARKING_POINTS + " pp ON pp.pp_id = t.t_pp_id" +
+    " WHERE pp.pp_eps_id = :id" +
+    " AND t.t_timestamp >= :from AND t.t_timestamp < :to AND t.t_timestamp >= :notBefore" +
+    " ORDER BY t_epoch_second";
+
+    @Modifying
+    @Query(value = MIGRATE_TIMESTAMP_COLUMN_SQL, nativeQuery = true)
+    void migrateTimestampColumn();
+
+    @Modifying
+    @Query(value = CREATE_TIME_INDEX_SQL, nativeQuery = true)
+    void createTimeIndex();
 
     @Modifying
-    @Query(value = CREATE_INDEX_SQL, nativeQuery = true)
-    void createDbIndex();
+    @Query(value = CREATE_PARKING_POINT_TIME_INDEX_SQL, nativeQuery = true)
+    void createParkingPointTimeIndex();
 
-    @Query(value = GET_MAX_ONE_DUPLICATE, nativeQuery = true)
-    int getMaxOneDuplicate(@Param("id") long parkingPointId, @Param("timestamp") String timestamp);
+    @Query(value = FIND_HISTORY_PAGE_SQL, nativeQuery = true)
+    List<Long> findHistoryPage(@Param("id") long editedParkingSpaceId, @Param("from") Instant from,
+        @Param("to") Instant to, @Param("notBefore") Instant notBefore, Pageable pageable);
 }
@@ -0,0 +1,125 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.configuration.GeoDataFile;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.entity.EditedParkingSpace;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.gradle.backendpostgresqlapi.enums.LoadStage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static org.gradle.backendpostgresqlapi.util.DataLoaderUtil.loadDataIntoDatabase;
+import static org.gradle.backendpostgresqlapi.util.DataLoaderUtil.runStage;
+
+/**
+ * Prepares the database at startup: creates the indexes, loads the data files, calculates the neighbors and the
+ * occupancy. It runs in a background thread, so the API is served right away, and its progress is tracked by the
+ * {@link LoadStatusService}.
+ */
+@Slf4j
+@Service
+public class DataLoadService {
+
+    private static final boolean PRINT_EDITED_PARKING_SPACES = false;
+    private static final boolean PRINT_PARKING_SPACES = false;
+
+    private final ParkingSpaceService parkingSpaceService;
+    private final EditedParkingSpaceService editedParkingSpaceService;
+    private final ParkingPointService parkingPointService;
+    private final TimestampService timestampService;
+    private final OverlappingParkingSpaceService overlappingParkingSpaceService;
+    private final OccupancyExpiryScheduler occupancyExpiryScheduler;
+    private final ObservationIngestService observationIngestService;
+    private final LoadStatusService loadStatusService;
+    private final LoadedFileService loadedFileService;
+    private final GeoDataFile geoDataFile;
+    private final IngestConfig ingestConfig;
+
+    @Autowired
+    public DataLoadService(ParkingSpaceService parkingSpaceService, EditedParkingSpaceService editedParkingSpaceService,
+        ParkingPointService parkingPointService, TimestampService timestampService,
+        OverlappingParkingSpaceService overlappingParkingSpaceService, OccupancyExpiryScheduler occupancyExpiryScheduler,
+        ObservationIngestService observationIngestService, LoadStatusService loadStatusService,
+        LoadedFileService loadedFileService, GeoDataFile geoDataFile, IngestConfig ingestConfig) {
+        this.parkingSpaceService = parkingSpaceService;
+        this.editedParkingSpaceService = editedParkingSpaceService;
+        this.parkingPointService = parkingPointService;
+        this.timestampService = timestampService;
+        this.overlappingParkingSpaceService = overlappingParkingSpaceService;
+        this.occupancyExpiryScheduler = occupancyExpiryScheduler;
+        this.observationIngestService = observationIngestService;
+        this.loadStatusService = loadStatusService;
+        this.loadedFileService = loadedFileService;
+        this.geoDataFile = geoDataFile;
+        this.ingestConfig = ingestConfig;
+    }
+
+    public void startInBackground() {
+        Thread loader = new Thread(this::load, "data-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        boolean loadingRequired = geoDataFile.isLoadingRequired();
+        List<String> filePaths = loadingRequired && geoDataFile.getPaths() != null ? geoDataFile.getPaths() : List.of();
+        loadStatusService.startLoad(filePaths);
+        try {
+            runStage(loadStatusService, LoadStage.INDEXES, () -> {
+                // Initialize indexes for some tables
+                parkingSpaceService.initializeDbIndex();
+                overlappingParkingSpaceService.initializeDbIndex();
+                editedParkingSpaceService.initializeDbIndex();
+                parkingPointService.initializeDbIndex();
+                timestampService.initializeDbIndex();
+                loadedFileService.initializeDbTable();
+
+                // Move the id sequences behind existing rows, e.g. of tables created with identity columns
+                parkingSpaceService.initializeIdSequence();
+                overlappingParkingSpaceService.initializeIdSequence();
+                editedParkingSpaceService.initializeIdSequence();
+                return 0L;
+            });
+
+            if (loadingRequired) {
+                // Data is loaded regarding the content of the file in the db, files loaded before are skipped or resumed
+                loadDataIntoDatabase(filePaths, parkingSpaceService, editedParkingSpaceService, parkingPointService,
+                    ingestConfig, loadStatusService, loadedFileService);
+            } else {
+                loadStatusService.skipStage(LoadStage.PARKING_SPACES);
+                loadStatusService.skipStage(LoadStage.EDITED_PARKING_SPACES);
+                loadStatusService.skipStage(LoadStage.PARKING_POINTS);
+            }
+
+            // Neighbors are calculated once here, afterward they are updated with every changed polygon
+            runStage(loadStatusService, LoadStage.NEIGHBORS, () -> (long) editedParkingSpaceService.initializeNeighbors());
+
+            if (PRINT_EDITED_PARKING_SPACES) {
+                // Now retrieve and print all edited parking spaces
+                List<EditedParkingSpace> editedParkingSpaces = editedParkingSpaceService.getAllEditedParkingSpaces();
+                editedParkingSpaces.forEach(eps -> System.out.println(eps.toString()));
+            }
+
+            if (PRINT_PARKING_SPACES) {
+                // Now retrieve and print all parking spaces.
+                List<ParkingSpace> parkingSpaces = parkingSpaceService.getAllParkingSpaces();
+                parkingSpaces.forEach(parkingSpace -> System.out.println(parkingSpace.toString()));
+            }
+
+            // Update occupancy status for all edited parking spaces, afterward it is kept current by the expiry scheduler
+            runStage(loadStatusService, LoadStage.OCCUPANCY, () -> (long) editedParkingSpaceService.updateOccupancyStatusForAllSpaces());
+            occupancyExpiryScheduler.initialize();
+            // Posted observations are loaded only now, so that they are assigned to the complete parking spaces
+            observationIngestService.startWorker();
+
+            loadStatusService.completeLoad();
+            log.info("Program is running!");
+        } catch (Exception e) {
+            loadStatusService.failLoad(e);
+            log.error("Loading data failed, the application stays unready.", e);
+        }
+    }
+}
@@ -1,75 +1,135 @@
 package org.gradle.backendpostgresqlapi.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.BoundingBox;
 import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceDto;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceOccupancy;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
+import org.gradle.backendpostgresqlapi.dto.ParkingSpacesSnapshot;
 import org.gradle.backendpostgresqlapi.entity.EditedParkingSpace;
-import org.gradle.backendpostgresqlapi.entity.ParkingPoint;
-import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
-import org.gradle.backendpostgresqlapi.entity.Timestamp;
+import org.gradle.backendpostgresqlapi.enums.WireFormat;
 import org.gradle.backendpostgresqlapi.repository.EditedParkingSpaceRepo;
-import org.gradle.backendpostgresqlapi.repository.ParkingSpaceRepo;
+import org.gradle.backendpostgresqlapi.repository.ParkingSpaceNeighborRepo;
 import org.gradle.backendpostgresqlapi.util.DtoConverterUtil;
+import org.gradle.backendpostgresqlapi.util.ParkingSpaceWireWriter;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Polygon;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
-import static org.gradle.backendpostgresqlapi.util.DateConverterUtil.calculateDifferenceInDays;
 import static org.gradle.backendpostgresqlapi.util.JsonHandler.convertJsonNodeToPolygon;
 import static org.gradle.backendpostgresqlapi.util.TableNameUtil.EDITED_PARKING_SPACES;
+import static org.gradle.backendpostgresqlapi.util.TableNameUtil.PARKING_SPACE_NEIGHBORS;
 
 @Slf4j
 @Service
 public class EditedParkingSpaceService {
 
     private final EditedParkingSpaceRepo editedParkingSpaceRepo;
-    private final ParkingSpaceRepo parkingSpaceRepo;
-    private static final int DAYS_FOR_VALID_OCCUPANCY = 180;
+    private final ParkingSpaceNeighborRepo parkingSpaceNeighborRepo;
+    public static final int DAYS_FOR_VALID_OCCUPANCY = 180;
+    private static final int OCCUPANCY_PAGE_SIZE = 1000;
+    private final VectorTileService vectorTileService;
+    private final OccupancyEventService occupancyEventService;
+    private final ObjectWriter dtoWriter;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    // Incremented on every change, a snapshot built for an older version is outdated
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final Map<WireFormat, AtomicReference<ParkingSpacesSnapshot>> snapshots = new EnumMap<>(WireFormat.class);
 
     @Autowired
-    public EditedParkingSpaceService(ParkingSpaceRepo parkingSpaceRepo, EditedParkingSpaceRepo editedParkingSpaceRepo) {
-        this.parkingSpaceRepo = parkingSpaceRepo;
+    public EditedParkingSpaceService(EditedParkingSpaceRepo editedParkingSpaceRepo,
+        ParkingSpaceNeighborRepo parkingSpaceNeighborRepo, VectorTileService vectorTileService,
+        OccupancyEventService occupancyEventService, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
         this.editedParkingSpaceRepo = editedParkingSpaceRepo;
+        this.parkingSpaceNeighborRepo = parkingSpaceNeighborRepo;
+        this.vectorTileService = vectorTileService;
+        this.occupancyEventService = occupancyEventService;
+        // Flushing after every parking space would send tiny chunks, the generator flushes its buffer when full.
+        // Long lists are not indented, which would only enlarge them
+        this.dtoWriter = objectMapper.writerFor(EditedParkingSpaceDto.class)
+                                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                                     .without(SerializationFeature.INDENT_OUTPUT);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        for (WireFormat format : WireFormat.values()) {
+            snapshots.put(format, new AtomicReference<>());
+        }
+    }
+
+    /**
+     * Creates an index on the referenced parking space and a spatial index if they do not already exist.
+     */
+    public void initializeDbIndex() {
+        log.debug("Initializing index for table '{}' ...", EDITED_PARKING_SPACES);
+        editedParkingSpaceRepo.createParkingSpaceIdIndex();
+        editedParkingSpaceRepo.createCoordinatesIndex();
+        log.info("Index for table '{}' created.", EDITED_PARKING_SPACES);
     }
 
-    public void copyDataIntoDatabase() throws IOException {
-        log.info("Copying data to '{}' table...", EDITED_PARKING_SPACES);
-        long duplicates = 0;
+    /**
+     * Creates the adjacency table of touching parking spaces if it does not exist and fills it from the current polygons.
+     */
+    public int initializeNeighbors() {
+        log.debug("Calculating neighbors for table '{}' ...", PARKING_SPACE_NEIGHBORS);
+        parkingSpaceNeighborRepo.createTable();
+        int pairs = parkingSpaceNeighborRepo.rebuildAll();
+        log.info("{} pairs of touching parking spaces stored in '{}'.", pairs / 2, PARKING_SPACE_NEIGHBORS);
+        return pairs;
+    }
 
-        for (long i = 1; i <= parkingSpaceRepo.count(); i++) {
-            Optional<ParkingSpace> parkingSpace = parkingSpaceRepo.findById(i);
-            if (parkingSpace.isPresent()) {
-                ParkingSpace existingParkingSpace = parkingSpace.get();
+    /**
+     * Moves the id sequence behind the highest existing id, so that ids allocated in advance do not collide.
+     */
+    public void initializeIdSequence() {
+        editedParkingSpaceRepo.synchronizeIdSequence();
+    }
 
-                // Check if a parking space with reference to the current id already exists in the second database
-                boolean isDuplicate = editedParkingSpaceRepo.existsByParkingSpaceId(existingParkingSpace.getId());
+    /**
+     * Copies the parking spaces, which have no edited parking space yet, into the `edited_parking_spaces` table
+     * with one set-based statement. Parking spaces get ascending ids, so only the ones after the last copied
+     * parking space are considered.
+     *
+     * @return the number of copied parking spaces
+     */
+    public long copyDataIntoDatabase() {
+        long afterParkingSpaceId = editedParkingSpaceRepo.findLastCopiedParkingSpaceId();
+        log.info("Copying data to '{}' table after parking space {}...", EDITED_PARKING_SPACES, afterParkingSpaceId);
 
-                if (!isDuplicate) {
-                    EditedParkingSpace editedParkingSpace = convertToEditedParkingSpace(existingParkingSpace);
-                    editedParkingSpaceRepo.save(editedParkingSpace);
-                } else {
-                    duplicates++;
-                }
-            } else {
-                throw new IOException(String.format("Error on copying data into '%s'.", EDITED_PARKING_SPACES));
-            }
-        }
+        int copied = editedParkingSpaceRepo.copyParkingSpaces(afterParkingSpaceId);
+        // Ids assigned by the statement are not taken from the sequence, so it is moved behind them
+        editedParkingSpaceRepo.synchronizeIdSequence();
 
-        if (duplicates > 0) {
-            log.warn("{} duplicates were not copied, because data already exists in the '{}' table.", duplicates, EDITED_PARKING_SPACES);
+        if (copied > 0) {
+            // Clients may have requested parking spaces while the data was still being loaded
+            vectorTileService.invalidateAll();
+            invalidateSnapshot();
         }
-        log.info("Successfully copied data to '{}'", EDITED_PARKING_SPACES);
+        log.info("Successfully copied {} parking spaces to '{}'", copied, EDITED_PARKING_SPACES);
+        return copied;
     }
 
     public void calculateAndUpdateAreaColumnById(long id) {
         log.debug("Calculating and updating area column in '{}' table...", EDITED_PARKING_SPACES);
         editedParkingSpaceRepo.updateAreaColumnById(id);
+        invalidateSnapshot();
         log.info("Area column values were calculated and set accordingly for '{}'.", EDITED_PARKING_SPACES);
     }
 
@@ -77,10 +137,110 @@ public class EditedParkingSpaceService {
         return editedParkingSpaceRepo.findAll();
     }    
 
-    public List<EditedParkingSpaceDto> getAllEditedParkingSpacesAsDto() {
-        return getAllEditedParkingSpaces().stream()
-                            .map(DtoConverterUtil::convertToDto)
-                            .collect(Collectors.toList());
+    /**
+     * Writes the edited parking spaces with the given occupancy in a wire format. The rows are read in pages
+     * ordered by id, so the memory used does not depend on their number, and the database connection is not
+     * held while a slow client receives a page.
+     *
+     * @return the number of written edited parking spaces
+     */
+    public long writeEditedParkingSpacesByOccupancy(boolean occupied, WireFormat format, OutputStream outputStream) {
+        try (ParkingSpaceWireWriter writer = ParkingSpaceWireWriter.create(format, outputStream, dtoWriter)) {
+            writer.flush(); // Send the first bytes before the first page is read
+            long written = 0;
+            long afterId = 0;
+            List<EditedParkingSpaceView> page;
+            do {
+                page = editedParkingSpaceRepo.findProjectedByOccupiedAndIdGreaterThanOrderByIdAsc(occupied, afterId,
+                    Limit.of(OCCUPANCY_PAGE_SIZE));
+                for (EditedParkingSpaceView editedParkingSpace : page) {
+                    writer.write(editedParkingSpace);
+                }
+                written += page.size();
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == OCCUPANCY_PAGE_SIZE);
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean existsEditedParkingSpaceByOccupancy(boolean occupied) {
+        return editedParkingSpaceRepo.existsByOccupied(occupied);
+    }
+
+    private long writeEditedParkingSpaces(Stream<EditedParkingSpaceView> editedParkingSpaces, WireFormat format,
+        OutputStream outputStream) {
+        try (ParkingSpaceWireWriter writer = ParkingSpaceWireWriter.create(format, outputStream, dtoWriter)) {
+            writer.flush(); // Send the first bytes before the query has produced all rows
+            long written = 0;
+            for (EditedParkingSpaceView editedParkingSpace : (Iterable<EditedParkingSpaceView>) editedParkingSpaces::iterator) {
+                writer.write(editedParkingSpace);
+                written++;
+            }
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the list of all edited parking spaces serialized in a wire format. The snapshot is shared by all
+     * requests until the data changes; the first request afterward builds a new one from the database.
+     */
+    public ParkingSpacesSnapshot getParkingSpacesSnapshot(WireFormat format) {
+        ParkingSpacesSnapshot currentSnapshot = snapshots.get(format).get();
+        if (currentSnapshot != null && currentSnapshot.version() == dataVersion.get()) {
+            return currentSnapshot;
+        }
+        return rebuildSnapshot(format);
+    }
+
+    private synchronized ParkingSpacesSnapshot rebuildSnapshot(WireFormat format) {
+        long version = dataVersion.get();
+        AtomicReference<ParkingSpacesSnapshot> snapshot = snapshots.get(format);
+        ParkingSpacesSnapshot currentSnapshot = snapshot.get();
+        if (currentSnapshot != null && currentSnapshot.version() == version) {
+            return currentSnapshot; // Built by a concurrent request in the meantime
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        long size = readOnlyTransactionTemplate.execute(status -> {
+            try (Stream<EditedParkingSpaceView> editedParkingSpaces = editedParkingSpaceRepo.streamAllProjectedByOrderByIdAsc()) {
+                return writeEditedParkingSpaces(editedParkingSpaces, format, content);
+            }
+        });
+        ParkingSpacesSnapshot newSnapshot = ParkingSpacesSnapshot.of(version, content.toByteArray(), (int) size);
+
+        // If the data changed while building, the snapshot is published with its older version and rebuilt on the next request
+        snapshot.set(newSnapshot);
+        log.debug("Snapshot of {} edited parking spaces built in format {} for version {}.", newSnapshot.size(), format, version);
+        return newSnapshot;
+    }
+
+    /**
+     * Marks the snapshot of all edited parking spaces as outdated. Must be called after changes were committed.
+     *
+     * @return the new data version
+     */
+    public long invalidateSnapshot() {
+        return dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Propagates committed occupancy changes: the affected tiles and the snapshot are outdated, and
+     * subscribed clients are notified.
+     *
+     * @param occupiedById the new occupancy by edited parking space id
+     */
+    public void onOccupancyChanged(Map<Long, Boolean> occupiedById) {
+        if (occupiedById.isEmpty()) {
+            return;
+        }
+        vectorTileService.invalidateParkingSpaces(occupiedById.keySet());
+        occupancyEventService.publish(occupiedById, invalidateSnapshot());
     }
 
     private Optional<EditedParkingSpace> getEditedParkingSpaceById(long id) {
@@ -88,47 +248,51 @@ public class EditedParkingSpaceService {
     }
 
     public Optional<EditedParkingSpaceDto> getEditedParkingSpaceByIdAsDto(long id) {
-        return getEditedParkingSpaceById(id)
+        return editedParkingSpaceRepo.findProjectedById(id)
                              .map(DtoConverterUtil::convertToDto);
     }
 
-    public List<EditedParkingSpaceDto> getEditedParkingSpacesByOccupancyAsDto(boolean occupied) {
-        List<EditedParkingSpace> editedParkingSpaces = editedParkingSpaceRepo.findByOccupied(occupied);
-        return editedParkingSpaces.stream()
-                    .map(DtoConverterUtil::convertToDto)
-                    .collect(Collectors.toList());
+    /**
+     * Gets a page of edited parking spaces ordered by id, optionally only the ones intersecting a bounding box.
+     *
+     * @param boundingBox the bounding box or null for all edited parking spaces
+     * @param afterId the id after which the page starts, i.e. the last id of the previous page
+     * @param limit the maximal number of edited parking spaces
+     * @return the page of edited parking spaces
+     */
+    public List<EditedParkingSpaceDto> getEditedParkingSpacesPageAsDto(BoundingBox boundingBox, long afterId, int limit) {
+        if (boundingBox == null) {
+            return editedParkingSpaceRepo.findProjectedByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit)).stream()
+                                         .map(DtoConverterUtil::convertToDto)
+                                         .toList();
+        }
+
+        return editedParkingSpaceRepo.findPageInBoundingBox(boundingBox.minLon(), boundingBox.minLat(),
+                                         boundingBox.maxLon(), boundingBox.maxLat(), afterId, limit).stream()
+                                     .map(DtoConverterUtil::convertToDto)
+                                     .toList();
     }
 
     /**
-     * Checks for each edited parking space if there is a timestamp related to it, which is sooner than
-     * a predefined threshold, and updates the occupancy status respectively.
+     * Checks for each edited parking space if its latest timestamp is sooner than a predefined threshold,
+     * and updates the occupancy status respectively. The check runs as a single statement in the database.
+     *
+     * @return the number of edited parking spaces whose occupancy status changed
      */
-    public void updateOccupancyStatusForAllSpaces() {
+    public int updateOccupancyStatusForAllSpaces() {
         log.info("Updating occupancy status for all parking spaces...");
-        for (EditedParkingSpace editedParkingSpace : getAllEditedParkingSpaces()) {
-            boolean isOccupied = false;
-            for (ParkingPoint parkingPoint : editedParkingSpace.getParkingPoints()) {
-                for (Timestamp  timestamp : parkingPoint.getTimestamps()) {
-                    long daysPassedTimestamp = calculateDifferenceInDays(timestamp.getTimestamp());
-
-                    if (daysPassedTimestamp < DAYS_FOR_VALID_OCCUPANCY) {
-                        isOccupied = true;
-                        break;
-                    }
-                }
-
-                if (isOccupied) {
-                    break;
-                }
-            }
-
-            // Check if the occupancy status have to be updated
-            if (editedParkingSpace.isOccupied() != isOccupied) {
-                editedParkingSpace.setOccupied(isOccupied);
-                editedParkingSpaceRepo.save(editedParkingSpace);
-            }
+        int backfilledParkingSpaces = editedParkingSpaceRepo.backfillLastSeen();
+        log.debug("Last seen time calculated for {} parking spaces.", backfilledParkingSpaces);
+        List<EditedParkingSpaceOccupancy> changedParkingSpaces = editedParkingSpaceRepo.updateOccupancyStatus(DAYS_FOR_VALID_OCCUPANCY);
+        if (!changedParkingSpaces.isEmpty()) {
+            // Usually a large part of all parking spaces, so the whole tile cache is dropped instead of single tiles
+            vectorTileService.invalidateAll();
+            Map<Long, Boolean> occupiedById = new HashMap<>();
+            changedParkingSpaces.forEach(changed -> occupiedById.put(changed.getId(), changed.isOccupied()));
+            occupancyEventService.publish(occupiedById, invalidateSnapshot());
         }
-        log.info("Occupancy status updated!");
+        log.info("Occupancy status updated for {} parking spaces!", changedParkingSpaces.size());
+        return changedParkingSpaces.size();
     }
 
     public Optional<String> getAreaOfEditedParkingSpaceById(long id) {
@@ -143,23 +307,26 @@ public class EditedParkingSpaceService {
 
             // convert new coordinates to a polygon
             Polygon editedPolygon = convertJsonNodeToPolygon(polygonWithChangedCoordinates);
+            Envelope previousEnvelope = editedParkingSpace.getPolygon().getEnvelopeInternal();
 
             editedParkingSpace.setPolygon(editedPolygon);
             editedParkingSpaceRepo.save(editedParkingSpace);
+            parkingSpaceNeighborRepo.rebuildById(id);
+
+            // Tiles showing the previous or the new polygon are outdated
+            vectorTileService.invalidate(List.of(previousEnvelope, editedPolygon.getEnvelopeInternal()));
+            // Clients are notified as well, so that they reload the changed parking space
+            occupancyEventService.publish(Map.of(id, editedParkingSpace.isOccupied()), invalidateSnapshot());
             return true;
         }
         return false;
     }
 
-    private EditedParkingSpace convertToEditedParkingSpace(ParkingSpace parkingSpace) {
-		return new EditedParkingSpace(parkingSpace.getId(), parkingSpace.getPolygon(),
-            parkingSpace.getArea(), parkingSpace.getCapacity(), parkingSpace.getPosition());
-    }
-
     public List<Long> getNeighbors(Long id) {
-        editedParkingSpaceRepo.findById(id)
-                              .orElseThrow(() -> new ResourceAccessException("Parking space with id: " + id + " not found."));
+        if (!editedParkingSpaceRepo.existsById(id)) {
+            throw new ResourceAccessException("Parking space with id: " + id + " not found.");
+        }
 
-		return editedParkingSpaceRepo.findNeighborIds(id);
+		return parkingSpaceNeighborRepo.findNeighborIds(id);
     }
 }
@@ -0,0 +1,49 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.repository.LoadedFileRepo;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Checkpoint of a data file which is being loaded. The rows before the row offset were loaded by an interrupted
+ * previous run and are skipped.
+ */
+public class FileCheckpoint {
+
+    private final String filePath;
+    private final long rowOffset;
+    private final LoadedFileRepo loadedFileRepo;
+    private final LoadStatusService loadStatusService;
+
+    FileCheckpoint(String filePath, long rowOffset, LoadedFileRepo loadedFileRepo, LoadStatusService loadStatusService) {
+        this.filePath = filePath;
+        this.rowOffset = rowOffset;
+        this.loadedFileRepo = loadedFileRepo;
+        this.loadStatusService = loadStatusService;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getRowOffset() {
+        return rowOffset;
+    }
+
+    /**
+     * Stores that the results of the first rows of the file are written. Must be called in the transaction
+     * which writes them, so that the checkpoint is never ahead of the data.
+     *
+     * @param rows the number of rows from the start of the file
+     */
+    public void commit(long rows) {
+        loadedFileRepo.updateRowOffset(filePath, rows);
+        // The progress of the load only counts rows after their commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                loadStatusService.recordRows(filePath, rows - rowOffset);
+            }
+        });
+    }
+}
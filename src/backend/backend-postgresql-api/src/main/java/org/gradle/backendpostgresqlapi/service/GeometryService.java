@@ -0,0 +1,142 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.gradle.backendpostgresqlapi.enums.GeometryEngine;
+import org.gradle.backendpostgresqlapi.repository.ParkingSpaceRepo;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.gradle.backendpostgresqlapi.util.CsvHandler.parseWktToGeometry;
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.area;
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.centroid;
+import static org.gradle.backendpostgresqlapi.util.JsonHandler.convertGeoJsonToPoint;
+import static org.gradle.backendpostgresqlapi.util.JsonHandler.convertGeoJsonToPolygon;
+
+/**
+ * Geometry calculations for merging parking spaces. Depending on the configured {@link GeometryEngine}
+ * they are either executed locally with JTS or as PostGIS queries.
+ */
+@Slf4j
+@Service
+public class GeometryService {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private final ParkingSpaceRepo parkingSpaceRepo;
+    private final GeometryEngine geometryEngine;
+
+    @Autowired
+    public GeometryService(ParkingSpaceRepo parkingSpaceRepo, IngestConfig ingestConfig) {
+        this.parkingSpaceRepo = parkingSpaceRepo;
+        this.geometryEngine = ingestConfig.getGeometryEngine();
+        log.info("Using the '{}' geometry engine for parking spaces.", geometryEngine);
+    }
+
+    public boolean isLocalEngine() {
+        return geometryEngine == GeometryEngine.LOCAL;
+    }
+
+    public Point calculateCentroid(Polygon polygon) throws JsonProcessingException {
+        if (isLocalEngine()) {
+            return centroid(polygon);
+        }
+        return convertGeoJsonToPoint(parkingSpaceRepo.calculateCentroidForPolygon(polygon.toString()));
+    }
+
+    public double calculateArea(Polygon polygon) {
+        if (isLocalEngine()) {
+            return area(polygon);
+        }
+        return parkingSpaceRepo.calculateAreaForPolygon(polygon.toString());
+    }
+
+    public double calculateIntersectionArea(Polygon polygon, ParkingSpace existingParkingSpace) {
+        if (isLocalEngine()) {
+            return area(OverlayNGRobust.overlay(polygon, existingParkingSpace.getPolygon(), OverlayNG.INTERSECTION));
+        }
+        return parkingSpaceRepo.getIntersectionAreaOfTwoPolygons(polygon.toString(), existingParkingSpace.getId());
+    }
+
+    /**
+     * Cuts the polygons of the given parking spaces one after another out of a geometry.
+     *
+     * @param geometry the geometry to cut
+     * @param parkingSpaces the parking spaces whose polygons are removed from the geometry
+     * @return the remaining geometry, which can also be a multipolygon
+     * @throws IOException error on parsing the result of the database
+     */
+    public Geometry subtractParkingSpaces(Geometry geometry, List<ParkingSpace> parkingSpaces) throws IOException {
+        if (isLocalEngine()) {
+            Geometry difference = geometry;
+            for (ParkingSpace parkingSpace : parkingSpaces) {
+                difference = OverlayNGRobust.overlay(difference, parkingSpace.getPolygon(), OverlayNG.DIFFERENCE);
+            }
+            return difference;
+        }
+
+        String difference = geometry.toString();
+        for (ParkingSpace parkingSpace : parkingSpaces) {
+            difference = parkingSpaceRepo.getDifferenceOfTwoPolygons(difference, parkingSpace.getId());
+        }
+        return parseWktToGeometry(difference);
+    }
+
+    public Polygon unionWithParkingSpace(Geometry geometry, ParkingSpace existingParkingSpace) throws JsonProcessingException {
+        if (isLocalEngine()) {
+            return extractPolygon(OverlayNGRobust.overlay(existingParkingSpace.getPolygon(), geometry, OverlayNG.UNION));
+        }
+        return convertGeoJsonToPolygon(parkingSpaceRepo.getUnionOfTwoPolygons(geometry.toString(), existingParkingSpace.getId()));
+    }
+
+    public Polygon toPolygon(Geometry geometry) throws JsonProcessingException {
+        if (isLocalEngine()) {
+            return extractPolygon(geometry);
+        }
+        return convertGeoJsonToPolygon(parkingSpaceRepo.getGeoJsonForPolygon(geometry.toString()));
+    }
+
+    /**
+     * Picks a single polygon out of a geometry the same way {@code convertGeoJsonToPolygon} does it for
+     * the results of the database: the first polygonal part of a geometry collection, the polygon with
+     * the most points of a multipolygon, and only the exterior ring.
+     */
+    private Polygon extractPolygon(Geometry geometry) {
+        if (geometry instanceof GeometryCollection && !(geometry instanceof MultiPolygon)) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry child = geometry.getGeometryN(i);
+                if (child instanceof Polygon || child instanceof MultiPolygon) {
+                    geometry = child;
+                    break;
+                }
+            }
+        }
+
+        if (geometry instanceof MultiPolygon) {
+            Geometry childWithMaxSize = null;
+            int maxSize = 0;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Polygon child = (Polygon) geometry.getGeometryN(i);
+                int currentSize = child.getExteriorRing().getNumPoints();
+                if (currentSize > maxSize) {
+                    maxSize = currentSize;
+                    childWithMaxSize = child;
+                }
+            }
+            geometry = childWithMaxSize;
+        }
+
+        if (!(geometry instanceof Polygon polygon) || polygon.isEmpty()) {
+            throw new IllegalArgumentException("Geometry does not contain a polygon: " + geometry);
+        }
+        return geometryFactory.createPolygon(polygon.getExteriorRing().getCoordinates());
+    }
+}
@@ -0,0 +1,163 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.dto.LoadProgress;
+import org.gradle.backendpostgresqlapi.dto.LoadStatus;
+import org.gradle.backendpostgresqlapi.enums.LoadStage;
+import org.gradle.backendpostgresqlapi.enums.LoadState;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Tracks the progress of the startup data load per stage and per file. As health indicator 'loadStatus' it is part
+ * of the readiness group, so the readiness probe only reports the application as ready after the data is loaded.
+ * The rows of a file and its stage are counted with every committed chunk, so a long load shows its progress.
+ */
+@Service
+public class LoadStatusService implements HealthIndicator {
+
+    private final Progress load = new Progress("load");
+    // Guarded by this
+    private final Map<LoadStage, Progress> stages = new EnumMap<>(LoadStage.class);
+    private final Map<String, Progress> files = new LinkedHashMap<>();
+    private final Map<String, LoadStage> fileStages = new HashMap<>();
+
+    public LoadStatusService() {
+        for (LoadStage stage : LoadStage.values()) {
+            stages.put(stage, new Progress(stage.name()));
+        }
+    }
+
+    public synchronized void startLoad(List<String> filePaths) {
+        load.start();
+        filePaths.forEach(filePath -> files.put(filePath, new Progress(filePath)));
+    }
+
+    public synchronized void completeLoad() {
+        load.complete(0);
+    }
+
+    /**
+     * Marks the load and every stage and file still running as failed.
+     */
+    public synchronized void failLoad(Throwable error) {
+        load.fail(error);
+        stages.values().stream().filter(progress -> progress.state == LoadState.RUNNING).forEach(progress -> progress.fail(error));
+        files.values().stream().filter(progress -> progress.state == LoadState.RUNNING).forEach(progress -> progress.fail(error));
+    }
+
+    public synchronized boolean isReady() {
+        return load.state == LoadState.COMPLETED;
+    }
+
+    /**
+     * Checks if the tables are migrated and indexed, before that the API cannot be served.
+     */
+    public synchronized boolean isSchemaReady() {
+        return stages.get(LoadStage.INDEXES).state == LoadState.COMPLETED;
+    }
+
+    /**
+     * Marks a stage as running, unless it is running already, e.g. because its files are loaded concurrently.
+     */
+    public synchronized void startStage(LoadStage stage) {
+        if (stages.get(stage).state == LoadState.PENDING) {
+            stages.get(stage).start();
+        }
+    }
+
+    public synchronized void completeStage(LoadStage stage, long rows) {
+        stages.get(stage).complete(rows);
+    }
+
+    public synchronized void skipStage(LoadStage stage) {
+        stages.get(stage).state = LoadState.SKIPPED;
+    }
+
+    public synchronized void startFile(LoadStage stage, String filePath) {
+        files.computeIfAbsent(filePath, Progress::new).start();
+        fileStages.put(filePath, stage);
+    }
+
+    /**
+     * Records the rows of a file committed so far, which are counted for its stage as well.
+     */
+    public synchronized void recordRows(String filePath, long rows) {
+        Progress file = files.computeIfAbsent(filePath, Progress::new);
+        LoadStage stage = fileStages.get(filePath);
+        if (stage != null && stages.get(stage).state == LoadState.RUNNING) {
+            stages.get(stage).rows += rows - file.rows;
+        }
+        file.rows = rows;
+    }
+
+    public synchronized void completeFile(String filePath, long rows) {
+        files.computeIfAbsent(filePath, Progress::new).complete(rows);
+    }
+
+    public synchronized void skipFile(String filePath) {
+        files.computeIfAbsent(filePath, Progress::new).state = LoadState.SKIPPED;
+    }
+
+    public synchronized LoadStatus getStatus() {
+        return new LoadStatus(load.state, isReady(), load.startedAt, load.completedAt,
+            stages.values().stream().map(Progress::toDto).toList(), files.values().stream().map(Progress::toDto).toList(),
+            load.error);
+    }
+
+    @Override
+    public Health health() {
+        LoadStatus status = getStatus();
+        Health.Builder health = switch (status.state()) {
+            case COMPLETED -> Health.up();
+            case FAILED -> Health.down().withDetail("error", status.error());
+            default -> Health.outOfService();
+        };
+        return health.withDetail("state", status.state()).build();
+    }
+
+    private static final class Progress {
+        private final String name;
+        private LoadState state = LoadState.PENDING;
+        private Instant startedAt;
+        private Instant completedAt;
+        private long rows;
+        private String error;
+
+        Progress(String name) {
+            this.name = name;
+        }
+
+        void start() {
+            state = LoadState.RUNNING;
+            startedAt = Instant.now();
+        }
+
+        void complete(long rows) {
+            state = LoadState.COMPLETED;
+            completedAt = Instant.now();
+            this.rows = rows;
+        }
+
+        void fail(Throwable error) {
+            state = LoadState.FAILED;
+            completedAt = Instant.now();
+            this.error = String.valueOf(error.getMessage());
+        }
+
+        LoadProgress toDto() {
+            double rowsPerSecond = 0;
+            if ((state == LoadState.COMPLETED || state == LoadState.RUNNING) && startedAt != null) {
+                // At least a millisecond, so that stages without work do not divide by zero
+                Instant end = state == LoadState.RUNNING ? Instant.now() : completedAt;
+                long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+                rowsPerSecond = rows * 1000.0 / millis;
+            }
+            return new LoadProgress(name, state, startedAt, completedAt, rows, rowsPerSecond, error);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.LoadedFile;
+import org.gradle.backendpostgresqlapi.repository.LoadedFileRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.gradle.backendpostgresqlapi.util.TableNameUtil.LOADED_FILES;
+
+/**
+ * Decides with the ledger of loaded files whether a data file has to be loaded. A file whose content was loaded
+ * completely before is skipped, a file whose load was interrupted is resumed after its last committed rows, and a
+ * new or changed file is loaded from the start.
+ */
+@Slf4j
+@Service
+public class LoadedFileService {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final LoadedFileRepo loadedFileRepo;
+    private final ResourceLoader resourceLoader;
+    private final LoadStatusService loadStatusService;
+
+    @Autowired
+    public LoadedFileService(LoadedFileRepo loadedFileRepo, ResourceLoader resourceLoader, LoadStatusService loadStatusService) {
+        this.loadedFileRepo = loadedFileRepo;
+        this.resourceLoader = resourceLoader;
+        this.loadStatusService = loadStatusService;
+    }
+
+    public void initializeDbTable() {
+        loadedFileRepo.createTable();
+        log.info("Table '{}' created.", LOADED_FILES);
+    }
+
+    /**
+     * Starts or resumes the load of a data file.
+     *
+     * @param filePath the data file on the classpath
+     * @return the checkpoint to load the file with, empty if the file is already loaded with its current content
+     * @throws IOException an error when there is a problem reading the file
+     */
+    public Optional<FileCheckpoint> startFile(String filePath) throws IOException {
+        Resource resource = resourceLoader.getResource("classpath:" + filePath);
+        if (!resource.exists()) {
+            throw new FileNotFoundException("File not found: " + filePath);
+        }
+
+        // Hashing reads every byte, so it is skipped while the size and modification time are unchanged
+        long size = resource.contentLength();
+        Long lastModified = getLastModified(resource);
+        Optional<LoadedFile> loadedFile = loadedFileRepo.findByPath(filePath);
+
+        boolean unchanged = loadedFile.isPresent() && loadedFile.get().hasAttributes(size, lastModified);
+        String sha256 = null;
+        if (!unchanged) {
+            sha256 = calculateSha256(resource);
+            unchanged = loadedFile.isPresent() && loadedFile.get().hasContent(sha256, size);
+            if (unchanged) {
+                // Only touched, e.g. copied again by the build
+                loadedFileRepo.updateLastModified(filePath, lastModified);
+            }
+        }
+
+        if (unchanged) {
+            if (loadedFile.get().completed()) {
+                log.info("File '{}' is unchanged since it was loaded, skipped.", filePath);
+                return Optional.empty();
+            }
+            log.info("Resuming the interrupted load of file '{}' after row {}.", filePath, loadedFile.get().rowOffset());
+            return Optional.of(new FileCheckpoint(filePath, loadedFile.get().rowOffset(), loadedFileRepo,
+                loadStatusService));
+        }
+
+        loadedFileRepo.start(filePath, sha256, size, lastModified);
+        return Optional.of(new FileCheckpoint(filePath, 0, loadedFileRepo, loadStatusService));
+    }
+
+    /**
+     * Marks a file as completely loaded, so that it is skipped by later runs as long as it is unchanged.
+     *
+     * @param rows the number of rows of the file
+     */
+    public void completeFile(FileCheckpoint checkpoint, long rows) {
+        loadedFileRepo.complete(checkpoint.getFilePath(), rows);
+    }
+
+    /**
+     * Gets the modification time of a file, null if it cannot be determined, e.g. for some entries of an archive.
+     */
+    private static Long getLastModified(Resource resource) {
+        try {
+            long lastModified = resource.lastModified();
+            return lastModified > 0 ? lastModified : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String calculateSha256(Resource resource) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,177 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.dto.ObservationBatchStatus;
+import org.gradle.backendpostgresqlapi.dto.ObservationQueueStatus;
+import org.gradle.backendpostgresqlapi.util.ObservationBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts batches of observations at runtime and loads them in the background. Posted batches wait in a queue
+ * bounded by the number of observations; a single worker combines them into micro-batches of up to one chunk,
+ * waiting at most the configured delay for further batches, and loads each micro-batch in one transaction.
+ */
+@Slf4j
+@Service
+public class ObservationIngestService {
+
+    // Statuses of older batches are dropped, so that the map does not grow with the uptime
+    private static final int MAX_TRACKED_BATCHES = 10_000;
+
+    private final ParkingPointService parkingPointService;
+    private final int maxBatchObservations;
+    private final long queueCapacity;
+    private final Duration maxBatchDelay;
+
+    private final BlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+    // Includes the micro-batch being loaded, so that the capacity also bounds it
+    private final AtomicLong queuedObservations = new AtomicLong();
+    private final AtomicLong processedObservations = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final Map<UUID, ObservationBatchStatus> batchStatuses = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ObservationBatchStatus> eldest) {
+                return size() > MAX_TRACKED_BATCHES;
+            }
+        });
+
+    private volatile Instant oldestProcessingReceivedAt;
+    private volatile boolean running;
+    private Thread worker;
+
+    private record PendingBatch(UUID id, ObservationBuffer observations, Instant receivedAt) {}
+
+    @Autowired
+    public ObservationIngestService(ParkingPointService parkingPointService, IngestConfig ingestConfig) {
+        this.parkingPointService = parkingPointService;
+        this.maxBatchObservations = ingestConfig.getObservationChunkSize();
+        this.queueCapacity = ingestConfig.getLiveQueueCapacity();
+        this.maxBatchDelay = ingestConfig.getLiveMaxBatchDelay();
+    }
+
+    public int getMaxBatchObservations() {
+        return maxBatchObservations;
+    }
+
+    /**
+     * Queues a batch of observations for loading.
+     *
+     * @return the status of the queued batch, empty if the queue is full
+     */
+    public Optional<ObservationBatchStatus> submit(ObservationBuffer observations) {
+        int size = observations.size();
+        if (queuedObservations.addAndGet(size) > queueCapacity) {
+            queuedObservations.addAndGet(-size);
+            return Optional.empty();
+        }
+
+        Instant receivedAt = Instant.now();
+        ObservationBatchStatus status = ObservationBatchStatus.queued(UUID.randomUUID(), size, receivedAt);
+        batchStatuses.put(status.id(), status);
+        queue.add(new PendingBatch(status.id(), observations, receivedAt));
+        return Optional.of(status);
+    }
+
+    public Optional<ObservationBatchStatus> getBatchStatus(UUID id) {
+        return Optional.ofNullable(batchStatuses.get(id));
+    }
+
+    public ObservationQueueStatus getQueueStatus() {
+        Instant oldest = oldestProcessingReceivedAt;
+        PendingBatch nextBatch = queue.peek();
+        if (oldest == null && nextBatch != null) {
+            oldest = nextBatch.receivedAt();
+        }
+        long lagMillis = oldest != null ? Math.max(0, Duration.between(oldest, Instant.now()).toMillis()) : 0;
+        return new ObservationQueueStatus(queue.size() + (oldestProcessingReceivedAt != null ? 1 : 0),
+            queuedObservations.get(), queueCapacity, lagMillis, processedObservations.get(), failedBatches.get());
+    }
+
+    /**
+     * Starts the worker, which must happen after the indexes were created and the data files loaded.
+     */
+    public void startWorker() {
+        running = true;
+        worker = new Thread(this::processBatches, "observation-ingest");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Observation ingest worker started.");
+    }
+
+    @PreDestroy
+    public void stopWorker() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void processBatches() {
+        ObservationBuffer microBatch = new ObservationBuffer(maxBatchObservations);
+        List<PendingBatch> batches = new ArrayList<>();
+        PendingBatch carriedOver = null;
+
+        while (running) {
+            try {
+                PendingBatch next = carriedOver != null ? carriedOver : queue.take();
+                carriedOver = null;
+                long deadline = System.nanoTime() + maxBatchDelay.toNanos();
+                while (next != null) {
+                    if (next.observations().size() > microBatch.remainingCapacity()) {
+                        carriedOver = next; // Starts the next micro-batch
+                        break;
+                    }
+                    microBatch.addAll(next.observations());
+                    batches.add(next);
+                    if (batches.size() == 1) {
+                        oldestProcessingReceivedAt = next.receivedAt();
+                    }
+                    long remainingNanos = deadline - System.nanoTime();
+                    next = remainingNanos > 0 ? queue.poll(remainingNanos, TimeUnit.NANOSECONDS) : queue.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batches.isEmpty()) {
+                loadMicroBatch(microBatch, batches);
+            }
+        }
+        log.info("Observation ingest worker stopped.");
+    }
+
+    private void loadMicroBatch(ObservationBuffer microBatch, List<PendingBatch> batches) {
+        int observations = microBatch.size();
+        batches.forEach(batch -> batchStatuses.computeIfPresent(batch.id(), (id, status) -> status.processing()));
+        try {
+            parkingPointService.loadObservations(microBatch);
+            Instant completedAt = Instant.now();
+            batches.forEach(batch -> batchStatuses.computeIfPresent(batch.id(), (id, status) -> status.completed(completedAt)));
+            processedObservations.addAndGet(observations);
+            log.debug("Loaded {} observations of {} posted batches.", observations, batches.size());
+        } catch (RuntimeException e) {
+            log.error("Loading {} observations of {} posted batches failed.", observations, batches.size(), e);
+            Instant completedAt = Instant.now();
+            batches.forEach(batch -> batchStatuses.computeIfPresent(batch.id(), (id, status) -> status.failed(completedAt, e.getMessage())));
+            failedBatches.addAndGet(batches.size());
+        } finally {
+            microBatch.clear();
+            batches.clear();
+            oldestProcessingReceivedAt = null;
+            queuedObservations.addAndGet(-observations);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.OccupancyChangeEvent;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pushes occupancy changes of edited parking spaces to subscribed clients as Server-Sent Events.
+ * <p>
+ * Every client has its own queue, in which only the latest change per parking space is kept, and at most one
+ * sender thread writes to it at a time. Changes arriving while a slow client is still being written to are
+ * coalesced, and a client falling too far behind gets a single 'resync' event instead, after which it should
+ * reload the full list. Sender threads are not shared by a fixed number of clients, and the sender of a client
+ * whose send blocks longer than the send timeout is interrupted, so a slow client does not delay the others.
+ * The check for stalled clients never touches an emitter, because a blocked send holds its lock.
+ */
+@Slf4j
+@Service
+public class OccupancyEventService {
+
+    public static final String OCCUPANCY_EVENT = "occupancy";
+    public static final String RESYNC_EVENT = "resync";
+
+    // Clients reconnect automatically when the stream ends, which also releases connections of vanished clients
+    private static final long EMITTER_TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+    private static final int MAX_PENDING_EVENTS = 10_000;
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "occupancy-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Client client = new Client(emitter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(error -> clients.remove(client));
+        clients.add(client);
+        log.debug("Client subscribed to occupancy changes, {} clients connected.", clients.size());
+        return emitter;
+    }
+
+    /**
+     * Queues occupancy changes for all subscribed clients. Must be called after the changes were committed.
+     *
+     * @param occupiedById the new occupancy by edited parking space id
+     * @param version the data version after the changes
+     */
+    public void publish(Map<Long, Boolean> occupiedById, long version) {
+        if (occupiedById.isEmpty() || clients.isEmpty()) {
+            return;
+        }
+
+        List<OccupancyChangeEvent> events = new ArrayList<>(occupiedById.size());
+        occupiedById.forEach((id, occupied) -> events.add(new OccupancyChangeEvent(id, occupied, version)));
+        for (Client client : clients) {
+            client.enqueue(events);
+        }
+    }
+
+    /**
+     * Sends a comment to every client, so that broken connections are noticed and proxies keep idle ones open.
+     */
+    @Scheduled(fixedRate = 30_000)
+    public void sendHeartbeats() {
+        for (Client client : clients) {
+            client.requestHeartbeat();
+        }
+    }
+
+    /**
+     * Disconnects clients whose send blocks longer than the send timeout, they reconnect and reload the full list.
+     * Their sender is interrupted and completes the emitter itself, once the blocked send returns.
+     */
+    @Scheduled(fixedRate = 5_000)
+    public void disconnectStalledClients() {
+        Instant stalledSince = Instant.now().minus(SEND_TIMEOUT);
+        for (Client client : clients) {
+            Instant sendStarted = client.sendStarted;
+            if (sendStarted != null && sendStarted.isBefore(stalledSince)) {
+                log.debug("Client of occupancy changes disconnected, sending took longer than {}.", SEND_TIMEOUT);
+                clients.remove(client);
+                client.cancelSending();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+    }
+
+    private final class Client {
+        private final SseEmitter emitter;
+        // Guarded by this, insertion ordered so that changes are sent in the order of their first occurrence
+        private final LinkedHashMap<Long, OccupancyChangeEvent> pendingEvents = new LinkedHashMap<>();
+        private long resyncVersion = -1;
+        private boolean heartbeatRequired;
+        private boolean draining;
+        private Future<?> senderTask;
+        // Start of the send in progress or null, read by the check for stalled clients
+        private volatile Instant sendStarted;
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(List<OccupancyChangeEvent> events) {
+            synchronized (this) {
+                if (resyncVersion < 0) {
+                    for (OccupancyChangeEvent event : events) {
+                        pendingEvents.put(event.id(), event);
+                    }
+                }
+                if (pendingEvents.size() > MAX_PENDING_EVENTS) {
+                    pendingEvents.clear();
+                }
+                if (pendingEvents.isEmpty()) {
+                    // Only dropped events can leave the queue empty here, the client has to reload the full list
+                    resyncVersion = Math.max(resyncVersion, events.get(events.size() - 1).version());
+                }
+            }
+            startDraining();
+        }
+
+        void requestHeartbeat() {
+            synchronized (this) {
+                heartbeatRequired = true;
+            }
+            startDraining();
+        }
+
+        private void startDraining() {
+            synchronized (this) {
+                if (draining) {
+                    return; // The running sender picks the new events up
+                }
+                draining = true;
+                senderTask = sender.submit(this::drain);
+            }
+        }
+
+        /**
+         * Interrupts the running sender, without waiting for the send it may be blocked in.
+         */
+        void cancelSending() {
+            Future<?> task;
+            synchronized (this) {
+                task = senderTask;
+            }
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<OccupancyChangeEvent> events;
+                long resync;
+                boolean heartbeat;
+                if (Thread.currentThread().isInterrupted()) {
+                    stopDraining(new IOException("Sending occupancy changes timed out"));
+                    return;
+                }
+                synchronized (this) {
+                    if (pendingEvents.isEmpty() && resyncVersion < 0 && !heartbeatRequired) {
+                        draining = false;
+                        return;
+                    }
+                    events = new ArrayList<>(pendingEvents.values());
+                    resync = resyncVersion;
+                    heartbeat = heartbeatRequired;
+                    pendingEvents.clear();
+                    resyncVersion = -1;
+                    heartbeatRequired = false;
+                }
+
+                sendStarted = Instant.now();
+                try {
+                    if (resync >= 0) {
+                        emitter.send(SseEmitter.event().name(RESYNC_EVENT).id(String.valueOf(resync))
+                                               .data(Map.of("version", resync), MediaType.APPLICATION_JSON));
+                    }
+                    for (OccupancyChangeEvent event : events) {
+                        emitter.send(SseEmitter.event().name(OCCUPANCY_EVENT).id(String.valueOf(event.version()))
+                                               .data(event, MediaType.APPLICATION_JSON));
+                    }
+                    if (heartbeat) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Client of occupancy changes disconnected: {}", e.getMessage());
+                    // The container reports a broken connection itself, only a cancelled send completes the emitter
+                    stopDraining(Thread.currentThread().isInterrupted() ? e : null);
+                    return;
+                } finally {
+                    sendStarted = null;
+                }
+            }
+        }
+
+        private void stopDraining(Exception error) {
+            clients.remove(this);
+            synchronized (this) {
+                pendingEvents.clear();
+                draining = false;
+            }
+            if (error != null) {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+}
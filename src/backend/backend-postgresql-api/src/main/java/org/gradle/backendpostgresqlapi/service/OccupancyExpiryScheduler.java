@@ -0,0 +1,93 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceLastSeen;
+import org.gradle.backendpostgresqlapi.repository.EditedParkingSpaceRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.gradle.backendpostgresqlapi.service.EditedParkingSpaceService.DAYS_FOR_VALID_OCCUPANCY;
+
+/**
+ * Frees occupied parking spaces when their latest observation becomes older than the occupancy window.
+ * The upcoming expiry instants are kept in a priority queue, so every check only touches the parking
+ * spaces whose window has lapsed. The queue holds one entry per parking space; a later expiry of an
+ * observed parking space is only kept in a map, and its entry is moved there once it is polled.
+ */
+@Slf4j
+@Service
+public class OccupancyExpiryScheduler {
+
+    private static final Duration OCCUPANCY_WINDOW = Duration.ofDays(DAYS_FOR_VALID_OCCUPANCY);
+
+    private final EditedParkingSpaceRepo editedParkingSpaceRepo;
+    private final EditedParkingSpaceService editedParkingSpaceService;
+    private final PriorityQueue<OccupancyExpiry> expiries = new PriorityQueue<>(Comparator.comparing(OccupancyExpiry::expiry));
+    private final Map<Long, Instant> latestExpiries = new HashMap<>();
+
+    private record OccupancyExpiry(Instant expiry, long editedParkingSpaceId) {}
+
+    @Autowired
+    public OccupancyExpiryScheduler(EditedParkingSpaceRepo editedParkingSpaceRepo, EditedParkingSpaceService editedParkingSpaceService) {
+        this.editedParkingSpaceRepo = editedParkingSpaceRepo;
+        this.editedParkingSpaceService = editedParkingSpaceService;
+    }
+
+    /**
+     * Fills the queue with the expiry instants of all occupied parking spaces.
+     */
+    public synchronized void initialize() {
+        expiries.clear();
+        latestExpiries.clear();
+        for (EditedParkingSpaceLastSeen lastSeen : editedParkingSpaceRepo.findByOccupiedTrueAndLastSeenNotNull()) {
+            scheduleExpiry(lastSeen.getId(), lastSeen.getLastSeen());
+        }
+        log.info("Scheduled occupancy expiry for {} parking spaces.", expiries.size());
+    }
+
+    /**
+     * Schedules the expiry of the occupancy of a parking space, which was last seen at the given time.
+     */
+    public synchronized void scheduleExpiry(long editedParkingSpaceId, Instant lastSeen) {
+        Instant expiry = lastSeen.plus(OCCUPANCY_WINDOW);
+        Instant latestExpiry = latestExpiries.get(editedParkingSpaceId);
+        if (latestExpiry == null) {
+            latestExpiries.put(editedParkingSpaceId, expiry);
+            expiries.add(new OccupancyExpiry(expiry, editedParkingSpaceId));
+        } else if (expiry.isAfter(latestExpiry)) {
+            latestExpiries.put(editedParkingSpaceId, expiry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${occupancy.expiry-check-interval}")
+    public void expireOccupancies() {
+        Set<Long> dueIds = pollDueIds(Instant.now());
+        if (!dueIds.isEmpty()) {
+            List<Long> freedIds = editedParkingSpaceRepo.expireOccupancy(dueIds, DAYS_FOR_VALID_OCCUPANCY);
+            log.info("Occupancy expired for {} parking spaces.", freedIds.size());
+            Map<Long, Boolean> occupiedById = new HashMap<>();
+            freedIds.forEach(id -> occupiedById.put(id, false));
+            editedParkingSpaceService.onOccupancyChanged(occupiedById);
+        }
+    }
+
+    private synchronized Set<Long> pollDueIds(Instant now) {
+        Set<Long> dueIds = new HashSet<>();
+        while (!expiries.isEmpty() && !expiries.peek().expiry().isAfter(now)) {
+            OccupancyExpiry polled = expiries.poll();
+            Instant latestExpiry = latestExpiries.get(polled.editedParkingSpaceId());
+            if (latestExpiry.isAfter(polled.expiry())) {
+                expiries.add(new OccupancyExpiry(latestExpiry, polled.editedParkingSpaceId()));
+            } else {
+                latestExpiries.remove(polled.editedParkingSpaceId());
+                dueIds.add(polled.editedParkingSpaceId());
+            }
+        }
+        return dueIds;
+    }
+}
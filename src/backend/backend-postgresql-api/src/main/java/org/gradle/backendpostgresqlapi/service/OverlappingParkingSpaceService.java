@@ -8,6 +8,8 @@ import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 import static org.gradle.backendpostgresqlapi.util.TableNameUtil.OVERLAPPING_PARKING_SPACES;
 
 @Slf4j
@@ -30,12 +32,20 @@ public class OverlappingParkingSpaceService {
         log.info("Index for table '{}' created.", OVERLAPPING_PARKING_SPACES);
     }
 
-    public void createAndSaveOverlappingParkingSpace(ParkingSpace newParkingSpace, ParkingSpace existingParkingSpace) {
-        OverlappingParkingSpace overlappingParkingSpace = new OverlappingParkingSpace(
-            newParkingSpace.getPolygon(), newParkingSpace.getCapacity(),
+    /**
+     * Moves the id sequence behind the highest existing id, so that ids allocated in advance do not collide.
+     */
+    public void initializeIdSequence() {
+        overlappingParkingSpaceRepo.synchronizeIdSequence();
+    }
+
+    public OverlappingParkingSpace createOverlappingParkingSpace(ParkingSpace newParkingSpace, ParkingSpace existingParkingSpace) {
+        return new OverlappingParkingSpace(newParkingSpace.getPolygon(), newParkingSpace.getCapacity(),
             newParkingSpace.getPosition(), newParkingSpace.getCentroid(), existingParkingSpace);
+    }
 
-        overlappingParkingSpaceRepo.insertParkingSpace(overlappingParkingSpace);
+    public void saveOverlappingParkingSpaces(List<OverlappingParkingSpace> overlappingParkingSpaces) {
+        overlappingParkingSpaceRepo.saveAll(overlappingParkingSpaces);
     }
 
     public boolean doesOverlappingSpaceExistByCentroid(Point centroid) {
@@ -1,21 +1,26 @@
 package org.gradle.backendpostgresqlapi.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
-import org.gradle.backendpostgresqlapi.entity.*;
-import org.gradle.backendpostgresqlapi.repository.EditedParkingSpaceRepo;
-import org.gradle.backendpostgresqlapi.repository.OverlappingParkingSpaceRepo;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.dto.LastSeenUpdate;
 import org.gradle.backendpostgresqlapi.repository.ParkingPointRepo;
+import org.gradle.backendpostgresqlapi.repository.ParkingPointStagingRepo;
+import org.gradle.backendpostgresqlapi.util.GeoJsonFeatureReader;
+import org.gradle.backendpostgresqlapi.util.ObservationBuffer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
-import static org.gradle.backendpostgresqlapi.util.JsonHandler.getJsonDataFromFile;
-import static org.gradle.backendpostgresqlapi.util.JsonHandler.getParkingPointsAndTimestampsFromFile;
+import static org.gradle.backendpostgresqlapi.service.EditedParkingSpaceService.DAYS_FOR_VALID_OCCUPANCY;
+import static org.gradle.backendpostgresqlapi.util.JsonHandler.*;
 import static org.gradle.backendpostgresqlapi.util.TableNameUtil.PARKING_POINTS;
 
 @Slf4j
@@ -24,128 +29,189 @@ public class ParkingPointService {
 
     private static final int DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT = 100;
 
-    private final ParkingSpaceService parkingSpaceService;
-    private final OverlappingParkingSpaceRepo overlappingParkingSpaceRepo;
-    private final EditedParkingSpaceRepo editedParkingSpaceRepo;
     private final ParkingPointRepo parkingPointRepo;
-    private final TimestampService timestampService;
+    private final ParkingPointStagingRepo parkingPointStagingRepo;
     private final ResourceLoader resourceLoader;
+    private final TransactionTemplate transactionTemplate;
+    private final OccupancyExpiryScheduler occupancyExpiryScheduler;
+    private final EditedParkingSpaceService editedParkingSpaceService;
+    private final int observationChunkSize;
 
     @Autowired
-    public ParkingPointService(ParkingSpaceService parkingSpaceService, OverlappingParkingSpaceRepo overlappingParkingSpaceRepo,
-        EditedParkingSpaceRepo editedParkingSpaceRepo, ParkingPointRepo parkingPointRepo,
-        TimestampService timestampService, ResourceLoader resourceLoader) {
-        this.parkingSpaceService = parkingSpaceService;
-        this.overlappingParkingSpaceRepo = overlappingParkingSpaceRepo;
-        this.editedParkingSpaceRepo = editedParkingSpaceRepo;
+    public ParkingPointService(ParkingPointRepo parkingPointRepo, ParkingPointStagingRepo parkingPointStagingRepo,
+        ResourceLoader resourceLoader, TransactionTemplate transactionTemplate, OccupancyExpiryScheduler occupancyExpiryScheduler,
+        EditedParkingSpaceService editedParkingSpaceService, IngestConfig ingestConfig) {
         this.parkingPointRepo = parkingPointRepo;
-        this.timestampService = timestampService;
+        this.parkingPointStagingRepo = parkingPointStagingRepo;
         this.resourceLoader = resourceLoader;
+        this.transactionTemplate = transactionTemplate;
+        this.occupancyExpiryScheduler = occupancyExpiryScheduler;
+        this.editedParkingSpaceService = editedParkingSpaceService;
+        this.observationChunkSize = ingestConfig.getObservationChunkSize();
     }
 
     /**
-     * Creates a spatial index if it does not already exist.
+     * Creates a spatial index and an index on the edited parking space if they do not already exist.
      */
     public void initializeDbIndex() {
         log.debug("Initializing index for table '{}' ...", PARKING_POINTS);
         parkingPointRepo.createIndex();
+        parkingPointRepo.createEditedParkingSpaceIdIndex();
         log.info("Index for table '{}' created.", PARKING_POINTS);
     }
 
-    public List<ParkingPoint> getAllParkingPointsByEditedParkingSpaceId(long editedParkingSpaceId) {
-        return parkingPointRepo.getParkingPointsByEditedParkingSpaceId(editedParkingSpaceId);
-    }
-
     /**
      * Loads data from a GeoJSON file into the database. The method
      * reads a GeoJSON file from the filesystem and inserts the data into the `parking_points` table.
      *
      * @param filePath the GeoJSON file from the filesystem to read from
+     * @param checkpoint the checkpoint of the file, whose rows before the offset are skipped
+     * @return the number of read parking points after the offset
      * @throws IOException an error when there is a problem reading the GeoJSON file
      */
-    public void loadGeoJson(String filePath) throws IOException {
-        String geoJsonData = getJsonDataFromFile(resourceLoader, filePath);
-
-        if (geoJsonData.contains("DateTime")) {
-            log.info("Loading file '{}' into '{}' table...", filePath, PARKING_POINTS);
-            loadParkingPoints(geoJsonData);
-            log.info("Successfully loaded file '{}' in '{}'.", filePath, PARKING_POINTS);
-        } else {
-            log.warn("File '{}' does not contain parking points and timestamps data.",filePath);
+    public long loadGeoJson(String filePath, FileCheckpoint checkpoint) throws IOException {
+        try (GeoJsonFeatureReader featureReader = openGeoJsonFeatureReader(resourceLoader, filePath)) {
+            // The type of the file is detected by its first feature
+            JsonNode firstFeature = featureReader.peek();
+
+            if (firstFeature != null && isParkingPointFeature(firstFeature)) {
+                log.info("Loading file '{}' into '{}' table...", filePath, PARKING_POINTS);
+                long readParkingPoints = loadParkingPoints(featureReader, checkpoint);
+                log.info("Successfully loaded file '{}' in '{}'.", filePath, PARKING_POINTS);
+                return readParkingPoints;
+            } else {
+                log.warn("File '{}' does not contain parking points and timestamps data.",filePath);
+                return 0;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
-    private void loadParkingPoints(String geoJsonData) throws IOException {
-        int duplicatePoints = 0;
-
-        for (Map.Entry<ParkingPoint, Timestamp> entry : getParkingPointsAndTimestampsFromFile(geoJsonData).entrySet()) {
-            ParkingPoint parkingPoint = entry.getKey();
-            Timestamp timestamp = entry.getValue();
-            long duplicateId = getIdOfDuplicateParkingPoint(parkingPoint);
-
-            if (duplicateId == -1L) {
-                // Search for a polygon in the 'parking_spaces' table
-                Optional<Long> parkingSpaceId = parkingSpaceService.getIdOfParkingSpaceByPointWithin(parkingPoint.getPoint().toString());
-
-                EditedParkingSpace editedParkingSpace = null;
-                if (parkingSpaceId.isPresent()) {
-                    editedParkingSpace = editedParkingSpaceRepo.getEditedParkingSpaceByParkingSpaceId(parkingSpaceId.get());
-                    log.debug("Edited parking space with id '{}' found.", editedParkingSpace.getId());
-                } else {
-                    // Search for a polygon in the 'overlapping_parking_places' table
-                    Optional<OverlappingParkingSpace> overlappingParkingSpace = overlappingParkingSpaceRepo
-                        .getOverlappingParkingSpaceByPointWithin(parkingPoint.getPoint().toString());
-
-                    if (overlappingParkingSpace.isPresent()) {
-                        editedParkingSpace = editedParkingSpaceRepo
-                            .getEditedParkingSpaceByParkingSpaceId(overlappingParkingSpace.get().getAssignedParkingSpace().getId());
-                        log.debug("Edited parking space with id '{}' found.", editedParkingSpace.getId());
-                    } else {
-                        log.debug("No edited parking space found for point '{}'.", parkingPoint.getPoint().toString());
-                    }
-                }
-
-                // In case no parking space or overlapping parking space was found until now
-                if (editedParkingSpace == null) {
-                    List<ParkingSpace> closestParkingSpaces = parkingSpaceService.getClosestParkingSpacesByCentroidAndDistance(
-                        parkingPoint.getPoint().toString(), DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT);
-
-                    if (!closestParkingSpaces.isEmpty()) {
-                        long closestParkingSpaceId = closestParkingSpaces.get(0).getId();
-                        editedParkingSpace = editedParkingSpaceRepo.getEditedParkingSpaceByParkingSpaceId(
-                            closestParkingSpaceId);
-                    }
-                }
-
-                parkingPoint.setEditedParkingSpace(editedParkingSpace);
-                ParkingPoint savedParkingPoint = parkingPointRepo.save(parkingPoint);
-                timestamp.setParkingPoint(savedParkingPoint);
-            } else {
-                duplicatePoints++;
-                ParkingPoint existingParkingPoint = parkingPointRepo.getParkingPointById(duplicateId);
-                timestamp.setParkingPoint(existingParkingPoint);
+    /**
+     * Bulk loads the parking points and timestamps of a file. The observations are parsed into chunks of primitive
+     * arrays, and every chunk is copied into a staging table and merged into the points and timestamps, all
+     * set-based. Each chunk is committed together with the checkpoint of the file, so an interrupted load resumes
+     * after the last committed chunk.
+     *
+     * @return the number of read parking points after the offset
+     */
+    private long loadParkingPoints(GeoJsonFeatureReader featureReader, FileCheckpoint checkpoint) {
+        skipRows(featureReader, checkpoint.getRowOffset());
+
+        ObservationBuffer observations = new ObservationBuffer(observationChunkSize);
+        long readParkingPoints = 0;
+        long repeatedObservations = 0;
+        while (featureReader.hasNext()) {
+            addFeatureToObservations(featureReader.next(), observations);
+            readParkingPoints++;
+            if (observations.isFull()) {
+                repeatedObservations += loadChunk(observations, checkpoint, checkpoint.getRowOffset() + readParkingPoints);
             }
-            timestampService.saveTimestamp(timestamp);
+        }
+        repeatedObservations += loadChunk(observations, checkpoint, checkpoint.getRowOffset() + readParkingPoints);
+        log.info("Read {} parking points and their timestamps from JSON file, {} of them repeated.",
+            readParkingPoints, repeatedObservations);
+        return readParkingPoints;
+    }
+
+    /**
+     * Loads a chunk of observations of a file in one transaction and empties the chunk.
+     *
+     * @param rowOffset the number of rows of the file up to the end of the chunk
+     * @return the number of repeated observations
+     */
+    private int loadChunk(ObservationBuffer observations, FileCheckpoint checkpoint, long rowOffset) {
+        int repeatedObservations = observations.deduplicate();
+        if (observations.isEmpty()) {
+            return repeatedObservations;
         }
 
+        List<LastSeenUpdate> lastSeenUpdates = transactionTemplate.execute(status -> {
+            parkingPointStagingRepo.createObservationsStagingTable();
+            copyObservations(observations);
+            List<LastSeenUpdate> updates = mergeStagedObservations();
+            checkpoint.commit(rowOffset);
+            return updates;
+        });
+        propagateLastSeenUpdates(lastSeenUpdates);
+        return repeatedObservations;
+    }
+
+    /**
+     * Skips the rows of a file which were loaded by an interrupted previous run. They are still parsed, but not merged.
+     */
+    private static void skipRows(GeoJsonFeatureReader featureReader, long rows) {
+        for (long skipped = 0; skipped < rows && featureReader.hasNext(); skipped++) {
+            featureReader.next();
+        }
+    }
+
+    /**
+     * Loads a batch of observations, which were received at runtime, with the same rules as the files.
+     * The batch is emptied.
+     */
+    public void loadObservations(ObservationBuffer observations) {
+        int repeatedObservations = observations.deduplicate();
+        log.debug("{} repeated observations skipped.", repeatedObservations);
+        if (observations.isEmpty()) {
+            return;
+        }
+
+        List<LastSeenUpdate> lastSeenUpdates = transactionTemplate.execute(status -> {
+            parkingPointStagingRepo.createObservationsStagingTable();
+            copyObservations(observations);
+            return mergeStagedObservations();
+        });
+        propagateLastSeenUpdates(lastSeenUpdates);
+    }
+
+    /**
+     * Merges the staged observations into the parking points and timestamps and updates the occupancy.
+     * Must be called in the transaction of the staging table, which holds the merge lock until the commit.
+     */
+    private List<LastSeenUpdate> mergeStagedObservations() {
+        // Concurrent loads must not insert the same new points twice, so only their COPY runs in parallel
+        parkingPointStagingRepo.lockMerge();
+        int duplicatePoints = parkingPointStagingRepo.stageParkingPoints();
+        int assignedParkingPoints = parkingPointStagingRepo.assignEditedParkingSpaces(DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT);
+        int insertedParkingPoints = parkingPointStagingRepo.insertNewParkingPoints();
+        int insertedTimestamps = parkingPointStagingRepo.insertNewTimestamps();
+        List<LastSeenUpdate> lastSeenUpdates = parkingPointStagingRepo.updateLastSeen(DAYS_FOR_VALID_OCCUPANCY);
+
+        log.info("Inserted {} parking points, {} of them assigned to an edited parking space, and {} timestamps.",
+            insertedParkingPoints, assignedParkingPoints, insertedTimestamps);
         if (duplicatePoints > 0) {
-            log.warn("{} points from GeoJSON file were not loaded and skipped due to a duplication in the '{}' table.",
+            log.warn("{} distinct points from GeoJSON file were not loaded and skipped due to a duplication in the '{}' table.",
                 duplicatePoints, PARKING_POINTS);
         }
+        return lastSeenUpdates;
     }
 
     /**
-     * Uses a spatial query to check a duplicate exists and get its id.
-     * @param newPoint a ParkingPoint object containing the point which is checked in the database
-     * @return the id of the duplicate, otherwise -1
+     * Schedules the expiry of the observed parking spaces and propagates their occupancy changes.
+     * Only after the commit, so that the new occupancy is visible when tiles are generated again.
      */
-    private long getIdOfDuplicateParkingPoint(ParkingPoint newPoint) {
-        // Use a spatial query to check a duplicate exists
-        Optional<Long> duplicateId = parkingPointRepo.getIdOfDuplicateByCoordinates(newPoint.getPoint().toString());
-        if (duplicateId.isPresent()) {
-            return duplicateId.get();
+    private void propagateLastSeenUpdates(List<LastSeenUpdate> lastSeenUpdates) {
+        if (lastSeenUpdates == null) {
+            return;
+        }
+
+        Map<Long, Boolean> changedOccupancy = new HashMap<>();
+        for (LastSeenUpdate lastSeenUpdate : lastSeenUpdates) {
+            occupancyExpiryScheduler.scheduleExpiry(lastSeenUpdate.editedParkingSpaceId(), lastSeenUpdate.lastSeen());
+            if (lastSeenUpdate.occupancyChanged()) {
+                changedOccupancy.put(lastSeenUpdate.editedParkingSpaceId(), lastSeenUpdate.occupied());
+            }
         }
+        editedParkingSpaceService.onOccupancyChanged(changedOccupancy);
+    }
 
-        return -1; // If id is -1, the point is unique
+    /**
+     * Copies a deduplicated, non-empty chunk into the staging table and empties the chunk.
+     */
+    private void copyObservations(ObservationBuffer observations) {
+        parkingPointStagingRepo.copyObservations(observations);
+        observations.clear();
     }
 }
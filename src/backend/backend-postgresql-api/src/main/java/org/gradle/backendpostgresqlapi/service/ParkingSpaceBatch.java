@@ -0,0 +1,113 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.entity.OverlappingParkingSpace;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Point;
+
+import java.util.*;
+
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.distance;
+
+/**
+ * Collects the parking spaces and overlapping parking spaces of an ingest, which are not written yet, so that
+ * they can be inserted together with JDBC batching. The pending parking spaces are only added to the in-memory
+ * index once they are committed, so lookups of the ingest consult the batch as well. When the rows of a file
+ * are processed in order, the batch also carries the checkpoint of the file, which is moved forward with every
+ * write.
+ */
+class ParkingSpaceBatch {
+
+    // Parking spaces have no equals() override, so an aggregated space which is already pending is kept only once
+    private final Set<ParkingSpace> parkingSpaces = new LinkedHashSet<>();
+    private final List<OverlappingParkingSpace> overlappingParkingSpaces = new ArrayList<>();
+    private final FileCheckpoint checkpoint;
+    private long rowOffset;
+
+    ParkingSpaceBatch() {
+        this(null);
+    }
+
+    ParkingSpaceBatch(FileCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets the number of rows of the file, including the one being processed, which are covered by the next write.
+     */
+    void setRowOffset(long rowOffset) {
+        this.rowOffset = rowOffset;
+    }
+
+    /**
+     * Moves the checkpoint of the file behind the written rows, if the batch has one.
+     */
+    void commitCheckpoint() {
+        if (checkpoint != null) {
+            checkpoint.commit(rowOffset);
+        }
+    }
+
+    void add(ParkingSpace parkingSpace) {
+        parkingSpaces.add(parkingSpace);
+    }
+
+    void add(OverlappingParkingSpace overlappingParkingSpace) {
+        overlappingParkingSpaces.add(overlappingParkingSpace);
+    }
+
+    boolean containsParkingSpace(ParkingSpace parkingSpace) {
+        return parkingSpaces.contains(parkingSpace);
+    }
+
+    /**
+     * Returns the ids of the pending parking spaces which are stored already, whose values in the index are outdated.
+     */
+    Set<Long> getStoredParkingSpaceIds() {
+        Set<Long> ids = new HashSet<>();
+        parkingSpaces.stream().map(ParkingSpace::getId).filter(Objects::nonNull).forEach(ids::add);
+        return ids;
+    }
+
+    boolean containsParkingSpaceWithCentroid(Coordinate centroid) {
+        return parkingSpaces.stream()
+                            .anyMatch(parkingSpace -> parkingSpace.getCentroid().getCoordinate().equals2D(centroid));
+    }
+
+    /**
+     * Finds the pending parking spaces whose centroids are within a distance of a point.
+     */
+    List<ParkingSpace> findWithCentroidWithin(Coordinate point, double maxDistance) {
+        return parkingSpaces.stream()
+                            .filter(parkingSpace ->
+                                distance(point, parkingSpace.getCentroid().getCoordinate()) <= maxDistance)
+                            .toList();
+    }
+
+    boolean containsOverlappingSpaceWithCentroid(Point centroid) {
+        return overlappingParkingSpaces.stream()
+                                       .anyMatch(overlappingParkingSpace ->
+                                           overlappingParkingSpace.getCentroid().equalsExact(centroid));
+    }
+
+    List<ParkingSpace> getParkingSpaces() {
+        return new ArrayList<>(parkingSpaces);
+    }
+
+    List<OverlappingParkingSpace> getOverlappingParkingSpaces() {
+        return new ArrayList<>(overlappingParkingSpaces);
+    }
+
+    int size() {
+        return parkingSpaces.size() + overlappingParkingSpaces.size();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear() {
+        parkingSpaces.clear();
+        overlappingParkingSpaces.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.dto.ParkingSpaceView;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.index.quadtree.Quadtree;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.distance;
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.envelopeWithinDistance;
+
+/**
+ * In-memory spatial index of the stored parking spaces by their centroids. It answers the duplicate
+ * and neighbor lookups of the ingest without querying the 'parking_spaces' table for every polygon.
+ * It only contains committed parking spaces, the ones pending in a batch are added after their commit.
+ * <p>
+ * Only the values the ingest decides with are kept, not the entities with their associations. Lookups
+ * return detached parking spaces built from them, which are enough to compare with and to refer to by id.
+ */
+class ParkingSpaceIndex {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private final Quadtree quadtree = new Quadtree();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private record Entry(long id, Coordinate centroid, Polygon polygon, double area) {
+
+        ParkingSpace toParkingSpace() {
+            ParkingSpace parkingSpace = new ParkingSpace();
+            parkingSpace.setId(id);
+            parkingSpace.setCentroid(geometryFactory.createPoint(centroid));
+            parkingSpace.setPolygon(polygon);
+            parkingSpace.setArea(area);
+            return parkingSpace;
+        }
+    }
+
+    /**
+     * Adds a committed parking space to the index or replaces its previous values.
+     */
+    synchronized void update(ParkingSpace parkingSpace) {
+        update(new Entry(parkingSpace.getId(), parkingSpace.getCentroid().getCoordinate(),
+            parkingSpace.getPolygon(), parkingSpace.getArea()));
+    }
+
+    synchronized void update(ParkingSpaceView parkingSpace) {
+        update(new Entry(parkingSpace.getId(), parkingSpace.getCentroid().getCoordinate(),
+            parkingSpace.getPolygon(), parkingSpace.getArea()));
+    }
+
+    private void update(Entry entry) {
+        Entry previousEntry = entries.put(entry.id(), entry);
+        if (previousEntry != null) {
+            quadtree.remove(new Envelope(previousEntry.centroid()), previousEntry);
+        }
+        quadtree.insert(new Envelope(entry.centroid()), entry);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the parking spaces with exactly the given centroid.
+     */
+    synchronized List<ParkingSpace> findWithCentroid(Coordinate centroid) {
+        List<?> candidates = quadtree.query(new Envelope(centroid));
+        return candidates.stream()
+                         .map(Entry.class::cast)
+                         .filter(entry -> entry.centroid().equals2D(centroid))
+                         .map(Entry::toParkingSpace)
+                         .toList();
+    }
+
+    /**
+     * Finds the parking spaces whose centroids are within a distance of a point.
+     *
+     * @param point the point to search around
+     * @param maxDistance the maximal distance in meters
+     * @return the parking spaces within the distance, in no particular order
+     */
+    synchronized List<ParkingSpace> findWithCentroidWithin(Coordinate point, double maxDistance) {
+        List<?> candidates = quadtree.query(envelopeWithinDistance(point, maxDistance));
+        return candidates.stream()
+                         .map(Entry.class::cast)
+                         .filter(entry -> distance(point, entry.centroid()) <= maxDistance)
+                         .map(Entry::toParkingSpace)
+                         .toList();
+    }
+}
@@ -0,0 +1,66 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.*;
+
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.expandByDistance;
+
+/**
+ * Splits a chunk of new parking spaces by fixed grid cells, so that the cells can be ingested concurrently.
+ * <p>
+ * The decision for a new polygon only reads and changes stored parking spaces whose centroids are within the
+ * neighbor distance of its centroid. If the envelope of the polygon, widened by the neighbor distance, lies
+ * inside a cell, all of them belong to that cell, so cells do not influence each other. Parking spaces are
+ * much smaller than a cell, so this holds for most polygons. The others cross a cell edge and may depend on
+ * any cell, so the chunk is cut at each of them: the cells of the parking spaces before a border parking space
+ * are ingested first, then the border parking space alone, at its position in the input.
+ */
+class ParkingSpacePartitioner {
+
+    // Size of a grid cell in degrees per meter of cell size, based on the length of a degree of latitude
+    private static final double DEGREES_PER_METER = 1 / 111_320.0;
+
+    private final double neighborDistance;
+    private final double cellSizeDegrees;
+
+    /**
+     * Parking spaces which are ingested together: the cells concurrently, followed by the border parking space
+     * which ends the segment, if any.
+     */
+    record Segment(List<List<ParkingSpace>> cells, ParkingSpace borderParkingSpace) {}
+
+    ParkingSpacePartitioner(double neighborDistance, double cellSizeMeters) {
+        this.neighborDistance = neighborDistance;
+        this.cellSizeDegrees = cellSizeMeters * DEGREES_PER_METER;
+    }
+
+    /**
+     * Partitions new parking spaces into segments, keeping the input order inside each cell and between the segments.
+     */
+    List<Segment> partition(List<ParkingSpace> parkingSpaces) {
+        List<Segment> segments = new ArrayList<>();
+        Map<Cell, List<ParkingSpace>> cells = new LinkedHashMap<>();
+        for (ParkingSpace parkingSpace : parkingSpaces) {
+            Envelope reach = expandByDistance(parkingSpace.getPolygon().getEnvelopeInternal(), neighborDistance);
+            Cell cell = cellOf(reach.getMinX(), reach.getMinY());
+            if (cell.equals(cellOf(reach.getMaxX(), reach.getMaxY()))) {
+                cells.computeIfAbsent(cell, key -> new ArrayList<>()).add(parkingSpace);
+            } else {
+                segments.add(new Segment(new ArrayList<>(cells.values()), parkingSpace));
+                cells.clear();
+            }
+        }
+        if (!cells.isEmpty()) {
+            segments.add(new Segment(new ArrayList<>(cells.values()), null));
+        }
+        return segments;
+    }
+
+    private Cell cellOf(double x, double y) {
+        return new Cell((long) Math.floor(x / cellSizeDegrees), (long) Math.floor(y / cellSizeDegrees));
+    }
+
+    private record Cell(long x, long y) {}
+}
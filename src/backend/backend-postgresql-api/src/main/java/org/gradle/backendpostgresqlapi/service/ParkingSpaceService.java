@@ -1,23 +1,40 @@
 package org.gradle.backendpostgresqlapi.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+import org.apache.commons.io.FilenameUtils;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.dto.ParkingSpaceView;
 import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
 import org.gradle.backendpostgresqlapi.repository.ParkingSpaceRepo;
+import org.gradle.backendpostgresqlapi.util.GeoJsonFeatureReader;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.gradle.backendpostgresqlapi.util.CsvHandler.getCsvDataFromFile;
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.distance;
+import static org.gradle.backendpostgresqlapi.util.GeodesicUtil.roundArea;
 import static org.gradle.backendpostgresqlapi.util.JsonHandler.*;
 import static org.gradle.backendpostgresqlapi.util.TableNameUtil.PARKING_SPACES;
 
@@ -28,18 +45,37 @@ public class ParkingSpaceService {
     private static final double OVERLAPPING_AREA_THRESHOLD = 0.5;
     private static final double DIFFERENCE_IN_SIZES_THRESHOLD = 1.0;
     private static final int DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT = 20;
+    private static final int CLOSEST_NEIGHBORS_LIMIT = 4;
     public static final double MIN_THRESHOLD_FOR_BEING_OVERLAPPED = 0.01;
 
     private final ResourceLoader resourceLoader;
     private final ParkingSpaceRepo parkingSpaceRepo;
     private final OverlappingParkingSpaceService overlappingParkingSpaceService;
+    private final GeometryService geometryService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final IngestConfig ingestConfig;
+    // Shared by all files, its threads are only started on the first parallel ingest
+    private final ForkJoinPool ingestPool;
+    private ParkingSpaceIndex parkingSpaceIndex;
 
     @Autowired
     public ParkingSpaceService(ResourceLoader resourceLoader, ParkingSpaceRepo parkingSpaceRepo,
-        OverlappingParkingSpaceService overlappingParkingSpaceService) {
+        OverlappingParkingSpaceService overlappingParkingSpaceService, GeometryService geometryService,
+        TransactionTemplate transactionTemplate, IngestConfig ingestConfig) {
         this.resourceLoader = resourceLoader;
         this.parkingSpaceRepo = parkingSpaceRepo;
         this.overlappingParkingSpaceService = overlappingParkingSpaceService;
+        this.geometryService = geometryService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = ingestConfig.getBatchSize();
+        this.ingestConfig = ingestConfig;
+        this.ingestPool = new ForkJoinPool(ingestConfig.getParallelism());
+    }
+
+    @PreDestroy
+    public void shutdownIngestPool() {
+        ingestPool.shutdownNow();
     }
 
     /**
@@ -48,35 +84,69 @@ public class ParkingSpaceService {
     public void initializeDbIndex() {
         log.debug("Initializing index for table '{}' ...", PARKING_SPACES);
         parkingSpaceRepo.createMainDataIndex();
+        parkingSpaceRepo.createCoordinatesIndex();
         log.info("Index for table '{}' created.", PARKING_SPACES);
     }
 
+    /**
+     * Moves the id sequence behind the highest existing id, so that ids allocated in advance do not collide.
+     */
+    public void initializeIdSequence() {
+        parkingSpaceRepo.synchronizeIdSequence();
+    }
+
     public List<ParkingSpace> getAllParkingSpaces() {
         return parkingSpaceRepo.findAll();
     }   
 
+    /**
+     * Returns the in-memory index of the parking spaces, which is built from the
+     * `parking_spaces` table on first use and kept up to date by the ingest afterward.
+     */
+    private synchronized ParkingSpaceIndex getParkingSpaceIndex() {
+        if (parkingSpaceIndex == null) {
+            ParkingSpaceIndex index = new ParkingSpaceIndex();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<ParkingSpaceView> parkingSpaces = parkingSpaceRepo.streamAllProjectedBy()) {
+                    parkingSpaces.forEach(index::update);
+                }
+            });
+            log.info("Indexed {} parking spaces from '{}' table.", index.size(), PARKING_SPACES);
+            parkingSpaceIndex = index;
+        }
+        return parkingSpaceIndex;
+    }
+
     /**
      * Loads data from a GeoJSON file into the database. The method
      * reads a GeoJSON file from the filesystem and inserts the data into the `parking_spaces` table.
      *
      * @param filePath the GeoJSON file from the filesystem to read from
+     * @param checkpoint the checkpoint of the file, whose rows before the offset are skipped
+     * @return the number of read parking spaces after the offset
      * @throws IOException an error when there is a problem reading the GeoJSON file
      */
-    public void loadGeoJson(String filePath) throws IOException {
-        String geoJsonData = getJsonDataFromFile(resourceLoader, filePath);
+    public long loadGeoJson(String filePath, FileCheckpoint checkpoint) throws IOException {
+        try (GeoJsonFeatureReader featureReader = openGeoJsonFeatureReader(resourceLoader, filePath)) {
+            // The type of the file is detected by its first feature
+            JsonNode firstFeature = featureReader.peek();
 
-        if (geoJsonData.contains("Polygon")) {
-            log.info("Loading file '{}' into '{}' table...", filePath, PARKING_SPACES);
+            if (firstFeature != null && isParkingSpaceFeature(firstFeature)) {
+                log.info("Loading file '{}' into '{}' table...", filePath, PARKING_SPACES);
 
-            for (Polygon polygon : getPolygonsFromGeoJson(geoJsonData)) {
-                ParkingSpace parkingSpace = new ParkingSpace();
-                parkingSpace.setPolygon(polygon);
-                processParkingSpace(parkingSpace);
-            }
+                Stream<ParkingSpace> parkingSpaces = StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(featureReader, Spliterator.ORDERED), false)
+                    .map(ParkingSpaceService::convertFeatureToParkingSpace);
+                long readParkingSpaces = processParkingSpaces(parkingSpaces, checkpoint);
 
-            log.info("Successfully loaded file '{}' in '{}' table.", filePath, PARKING_SPACES);
-        } else {
-            log.warn("File '{}' does not contain parking spaces data.",filePath);
+                log.info("Successfully loaded {} parking spaces of file '{}' in '{}' table.", readParkingSpaces, filePath, PARKING_SPACES);
+                return readParkingSpaces;
+            } else {
+                log.warn("File '{}' does not contain parking spaces data.",filePath);
+                return 0;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
@@ -85,48 +155,213 @@ public class ParkingSpaceService {
      * reads a CSV file from the filesystem and inserts the data into the `parking_spaces` table.
      * 
      * @param filePath the CSV file from the filesystem to read from
+     * @param checkpoint the checkpoint of the file, whose rows before the offset are skipped
+     * @return the number of read parking spaces after the offset
      * @throws IOException an error when there is a problem reading the CSV file
      * @throws CsvValidationException an error when there is a problem validating the CSV file
      */
-    public void loadCsv(String filePath) throws IOException, CsvValidationException {
+    public long loadCsv(String filePath, FileCheckpoint checkpoint) throws IOException, CsvValidationException {
         log.info("Loading file '{}' into '{}' table...", filePath, PARKING_SPACES);
 
         List<ParkingSpace> csvParkingSpaces = getCsvDataFromFile(resourceLoader, filePath);
-        for (ParkingSpace parkingSpace : csvParkingSpaces) {
-            processParkingSpace(parkingSpace);
-        }
+        long readParkingSpaces = processParkingSpaces(csvParkingSpaces.stream(), checkpoint);
 
         log.info("Successfully loaded file '{}' in '{}' table.", filePath, PARKING_SPACES);
+        return readParkingSpaces;
+    }
+
+    /**
+     * Parses the parking spaces of a GeoJSON or CSV file without touching the database, so that
+     * several files can be parsed concurrently before they are processed in their order.
+     *
+     * @param filePath the GeoJSON or CSV file from the filesystem to read from
+     * @return the parsed parking spaces, empty if the file does not contain parking spaces
+     * @throws IOException an error when there is a problem reading the file
+     * @throws CsvValidationException an error when there is a problem validating the CSV file
+     */
+    public List<ParkingSpace> readParkingSpaces(String filePath) throws IOException, CsvValidationException {
+        if (FilenameUtils.getExtension(filePath).equalsIgnoreCase("csv")) {
+            return getCsvDataFromFile(resourceLoader, filePath);
+        }
+
+        try (GeoJsonFeatureReader featureReader = openGeoJsonFeatureReader(resourceLoader, filePath)) {
+            JsonNode firstFeature = featureReader.peek();
+            if (firstFeature == null || !isParkingSpaceFeature(firstFeature)) {
+                log.warn("File '{}' does not contain parking spaces data.",filePath);
+                return List.of();
+            }
+
+            List<ParkingSpace> parkingSpaces = new ArrayList<>();
+            featureReader.forEachRemaining(feature -> parkingSpaces.add(convertFeatureToParkingSpace(feature)));
+            return parkingSpaces;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
-    private boolean isPolygonUnique(Polygon newPolygon) {
-        // Use a spatial query to check if a duplicate exists. If count is 0, the polygon is unique
-        return parkingSpaceRepo.findOneDuplicatePolygonByCentroid(newPolygon.toString()) == 0;
+    /**
+     * Inserts parking spaces parsed by {@link #readParkingSpaces(String)} into the `parking_spaces` table.
+     *
+     * @param filePath the file the parking spaces were parsed from, for logging
+     * @param parkingSpaces the parsed parking spaces
+     * @param checkpoint the checkpoint of the file, whose rows before the offset are skipped
+     * @return the number of processed parking spaces after the offset
+     * @throws IOException error on parsing a geometry returned by the geometry engine
+     */
+    public long loadParkingSpaces(String filePath, List<ParkingSpace> parkingSpaces, FileCheckpoint checkpoint) throws IOException {
+        log.info("Loading file '{}' into '{}' table...", filePath, PARKING_SPACES);
+        long readParkingSpaces = processParkingSpaces(parkingSpaces.stream(), checkpoint);
+        log.info("Successfully loaded {} parking spaces of file '{}' in '{}' table.", readParkingSpaces, filePath, PARKING_SPACES);
+        return readParkingSpaces;
     }
 
-    private void processParkingSpace(ParkingSpace newParkingSpace) throws JsonProcessingException {
+    private static ParkingSpace convertFeatureToParkingSpace(JsonNode feature) {
+        ParkingSpace parkingSpace = new ParkingSpace();
+        parkingSpace.setPolygon(convertFeatureToPolygon(feature));
+        return parkingSpace;
+    }
+
+    /**
+     * Processes new parking spaces in their order, either one by one or in parallel chunks. One by one, the
+     * checkpoint of the file is moved forward with every write, so an interrupted load resumes after the last
+     * written parking space. In parallel, it is moved forward after every completed chunk.
+     *
+     * @param parkingSpaces the new parking spaces of a file
+     * @param checkpoint the checkpoint of the file, whose rows before the offset are skipped
+     * @return the number of processed parking spaces
+     * @throws IOException error on parsing a geometry returned by the geometry engine
+     */
+    private long processParkingSpaces(Stream<ParkingSpace> parkingSpaces, FileCheckpoint checkpoint) throws IOException {
+        Iterator<ParkingSpace> remainingParkingSpaces = parkingSpaces.skip(checkpoint.getRowOffset()).iterator();
+        long processedParkingSpaces = 0;
+
+        if (ingestConfig.isParallelIngest()) {
+            // Only one chunk of the file is held in memory at a time
+            List<ParkingSpace> chunk = new ArrayList<>();
+            while (remainingParkingSpaces.hasNext()) {
+                chunk.add(remainingParkingSpaces.next());
+                if (chunk.size() == ingestConfig.getParallelIngestChunkSize() || !remainingParkingSpaces.hasNext()) {
+                    processParkingSpacesInParallel(chunk);
+                    processedParkingSpaces += chunk.size();
+                    long rowOffset = checkpoint.getRowOffset() + processedParkingSpaces;
+                    transactionTemplate.executeWithoutResult(status -> checkpoint.commit(rowOffset));
+                    chunk.clear();
+                }
+            }
+            return processedParkingSpaces;
+        }
+
+        ParkingSpaceBatch batch = new ParkingSpaceBatch(checkpoint);
+        while (remainingParkingSpaces.hasNext()) {
+            batch.setRowOffset(checkpoint.getRowOffset() + processedParkingSpaces + 1);
+            processParkingSpace(remainingParkingSpaces.next(), batch);
+            processedParkingSpaces++;
+        }
+        flush(batch);
+        return processedParkingSpaces;
+    }
+
+    /**
+     * Splits a chunk of new parking spaces into segments, which are processed one after another. The grid cells of
+     * a segment are processed concurrently, then the parking space crossing a cell edge which ends the segment.
+     * Since the cells do not influence each other, the result is the same as processing the chunk one by one.
+     *
+     * @param parkingSpaces a chunk of new parking spaces in their input order
+     * @throws IOException error on parsing a geometry returned by the geometry engine
+     */
+    private void processParkingSpacesInParallel(List<ParkingSpace> parkingSpaces) throws IOException {
+        List<ParkingSpacePartitioner.Segment> segments = new ParkingSpacePartitioner(DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT,
+            ingestConfig.getTileSizeMeters()).partition(parkingSpaces);
+        log.debug("Processing {} parking spaces in {} segments...", parkingSpaces.size(), segments.size());
+
+        // Build the index before the cells query it concurrently
+        getParkingSpaceIndex();
+        for (ParkingSpacePartitioner.Segment segment : segments) {
+            processCellsInParallel(segment.cells());
+            if (segment.borderParkingSpace() != null) {
+                processParkingSpaceGroup(List.of(segment.borderParkingSpace()));
+            }
+        }
+    }
+
+    private void processCellsInParallel(List<List<ParkingSpace>> cells) throws IOException {
+        List<Callable<Void>> cellTasks = new ArrayList<>();
+        for (List<ParkingSpace> cell : cells) {
+            cellTasks.add(() -> {
+                processParkingSpaceGroup(cell);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> cellResult : ingestPool.invokeAll(cellTasks)) {
+                cellResult.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parallel ingest of parking spaces was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("Parallel ingest of parking spaces failed", e.getCause());
+        }
+    }
+
+    private void processParkingSpaceGroup(List<ParkingSpace> parkingSpaces) throws IOException {
+        ParkingSpaceBatch batch = new ParkingSpaceBatch();
+        for (ParkingSpace parkingSpace : parkingSpaces) {
+            processParkingSpace(parkingSpace, batch);
+        }
+        flush(batch);
+    }
+
+    /**
+     * Looks up a parking space with the same centroid in the index and the batch. If there is none, the polygon is unique.
+     * The centroid has to be calculated by the geometry engine, like the stored ones.
+     */
+    private boolean isPolygonUnique(Point newCentroid, ParkingSpaceBatch batch) {
+        Coordinate centroid = newCentroid.getCoordinate();
+        // Stored parking spaces pending in the batch are compared with their new values
+        Set<Long> pendingIds = batch.getStoredParkingSpaceIds();
+        return getParkingSpaceIndex().findWithCentroid(centroid).stream().allMatch(parkingSpace -> pendingIds.contains(parkingSpace.getId()))
+            && !batch.containsParkingSpaceWithCentroid(centroid);
+    }
+
+    /**
+     * Finds the committed and pending parking spaces whose centroids are closest to a point.
+     */
+    private List<ParkingSpace> findClosestParkingSpaces(Coordinate point, ParkingSpaceBatch batch) {
+        Set<Long> pendingIds = batch.getStoredParkingSpaceIds();
+        List<ParkingSpace> candidates = new ArrayList<>(batch.findWithCentroidWithin(point, DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT));
+        getParkingSpaceIndex().findWithCentroidWithin(point, DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT).stream()
+                              .filter(parkingSpace -> !pendingIds.contains(parkingSpace.getId()))
+                              .forEach(candidates::add);
+        return candidates.stream()
+                         .sorted(Comparator.comparingDouble(parkingSpace -> distance(point, parkingSpace.getCentroid().getCoordinate())))
+                         .limit(CLOSEST_NEIGHBORS_LIMIT)
+                         .toList();
+    }
+
+    private void processParkingSpace(ParkingSpace newParkingSpace, ParkingSpaceBatch batch) throws IOException {
         Polygon newPolygon = newParkingSpace.getPolygon();
-        if (isPolygonUnique(newPolygon)) {
+        Point newCentroid = geometryService.calculateCentroid(newPolygon);
+        if (isPolygonUnique(newCentroid, batch)) {
 
             // Check if polygon is self-intersecting and if yes, cut the invalid part
             if (!newPolygon.isValid()) {
                 newPolygon = (Polygon) newPolygon.buffer(0);
+                newCentroid = geometryService.calculateCentroid(newPolygon);
             }
 
-            // Get new polygon's centroid as GeoJson
-            String newPolygonAsString = newPolygon.toString();
-            String newPolygonCentroidAsGeoJson = parkingSpaceRepo.calculateCentroidForPolygon(newPolygonAsString);
-
-            // Convert it to a point and set it to the new parking space
-            Point newCentroid = convertGeoJsonToPoint(newPolygonCentroidAsGeoJson);
+            // Set the new polygon's centroid to the new parking space
             newParkingSpace.setCentroid(newCentroid);
 
             // Get new polygon's area
-            double newPolygonArea = parkingSpaceRepo.calculateAreaForPolygon(newPolygonAsString);
+            double newPolygonArea = geometryService.calculateArea(newPolygon);
 
             // Get the closest parking spaces by their centroids and loop over them
-            List<ParkingSpace> closestParkingSpacesByCentroid =
-                getClosestParkingSpacesByCentroidAndDistance(newCentroid.toString(), DISTANCE_TO_CLOSEST_NEIGHBORS_LIMIT);
+            List<ParkingSpace> closestParkingSpacesByCentroid = findClosestParkingSpaces(newCentroid.getCoordinate(), batch);
 
             // Initialize help variables
             double maxIntersectionArea = 0.0;
@@ -135,8 +370,7 @@ public class ParkingSpaceService {
 
             // Iterate through closest neighbors and find max intersection
             for (ParkingSpace currentNeighbor : closestParkingSpacesByCentroid) {
-                double currentIntersectionArea = parkingSpaceRepo.getIntersectionAreaOfTwoPolygons(
-                    newPolygonAsString, currentNeighbor.getId());
+                double currentIntersectionArea = geometryService.calculateIntersectionArea(newPolygon, currentNeighbor);
                 log.debug("Intersection area: {}", String.format("%.2f", currentIntersectionArea));
 
                 double overlappedAreaPercentageOfExistingPolygon = currentIntersectionArea / currentNeighbor.getArea() ;
@@ -155,26 +389,28 @@ public class ParkingSpaceService {
                 // When the overlapping area exceeds the threshold we differentiate between two cases
                 // Case 1: When the new polygon is much bigger assign it to the existing one
                 if (newPolygonArea / maxOverlappingParkingSpace.getArea() >= DIFFERENCE_IN_SIZES_THRESHOLD) {
-                    if (!overlappingParkingSpaceService.doesOverlappingSpaceExistByCentroid(newParkingSpace.getCentroid())) {
-                        overlappingParkingSpaceService.createAndSaveOverlappingParkingSpace(newParkingSpace, maxOverlappingParkingSpace);
+                    if (!batch.containsOverlappingSpaceWithCentroid(newCentroid)
+                        && !overlappingParkingSpaceService.doesOverlappingSpaceExistByCentroid(newCentroid)) {
+                        batch.add(overlappingParkingSpaceService.createOverlappingParkingSpace(newParkingSpace, maxOverlappingParkingSpace));
+                        flushIfRequired(batch);
                     }
                 } else {
                     // Case 2: When new polygon is rather small, aggregate both polygons
                     parkingSpacesWithOverlap.remove(maxOverlappingParkingSpace);
-                    aggregatePolygons(newPolygonAsString, maxOverlappingParkingSpace, parkingSpacesWithOverlap);
+                    aggregatePolygons(newPolygon, maxOverlappingParkingSpace, parkingSpacesWithOverlap, batch);
                 }
             } else {
                 // No overlaps, therefore parking space is simply saved
                 if (parkingSpacesWithOverlap.isEmpty()) {
-                    saveParkingSpaceAndUpdateArea(newParkingSpace, newCentroid);
+                    saveParkingSpace(newParkingSpace, newCentroid, batch);
                 } else {
                     // Check if the max intersection is more than half of the new polygon's area and aggregate it
                     // with the max overlapping polygon otherwise reshape it and save it
                     if (maxIntersectionArea / newPolygonArea >= OVERLAPPING_AREA_THRESHOLD) {
                         parkingSpacesWithOverlap.remove(maxOverlappingParkingSpace);
-                        aggregatePolygons(newPolygonAsString, maxOverlappingParkingSpace, parkingSpacesWithOverlap);
+                        aggregatePolygons(newPolygon, maxOverlappingParkingSpace, parkingSpacesWithOverlap, batch);
                     } else {
-                        reshapePolygonAndSaveParkingSpace(newParkingSpace, parkingSpacesWithOverlap);
+                        reshapePolygonAndSaveParkingSpace(newParkingSpace, parkingSpacesWithOverlap, batch);
                     }
                 }
             }
@@ -190,26 +426,23 @@ public class ParkingSpaceService {
      * @param newPolygon the polygon, which will be aggregated with the existing one
      * @param overlappedExistingParkingSpace the target parking space whose polygon has to be aggregated
      * @param closestParkingSpaces list ot neighbors which intersect the new polygon
-     * @throws JsonProcessingException error on parsing a Geo JSON format
+     * @param batch the pending writes of the current ingest
+     * @throws IOException error on parsing a geometry returned by the geometry engine
      */
-    private void aggregatePolygons(String newPolygon, ParkingSpace overlappedExistingParkingSpace,
-        List<ParkingSpace> closestParkingSpaces) throws JsonProcessingException {
-        String polygonToUnion = newPolygon;
-        for (ParkingSpace neighborParkingSpace : closestParkingSpaces) {
-            polygonToUnion = parkingSpaceRepo.getDifferenceOfTwoPolygons(polygonToUnion, neighborParkingSpace.getId());
-        }
-
-        String aggregatedPolygonAsGeoJson =
-            parkingSpaceRepo.getUnionOfTwoPolygons(polygonToUnion, overlappedExistingParkingSpace.getId());
-
-        Polygon aggregatedPolygon = convertGeoJsonToPolygon(aggregatedPolygonAsGeoJson);
+    private void aggregatePolygons(Polygon newPolygon, ParkingSpace overlappedExistingParkingSpace,
+        List<ParkingSpace> closestParkingSpaces, ParkingSpaceBatch batch) throws IOException {
+        Geometry polygonToUnion = geometryService.subtractParkingSpaces(newPolygon, closestParkingSpaces);
+        Polygon aggregatedPolygon = geometryService.unionWithParkingSpace(polygonToUnion, overlappedExistingParkingSpace);
 
-        overlappedExistingParkingSpace.setPolygon(aggregatedPolygon);
+        // Parking spaces of the index only carry the values to compare with, so the stored one is loaded to be changed
+        ParkingSpace aggregatedParkingSpace = batch.containsParkingSpace(overlappedExistingParkingSpace)
+            ? overlappedExistingParkingSpace
+            : parkingSpaceRepo.findById(overlappedExistingParkingSpace.getId()).orElseThrow();
+        aggregatedParkingSpace.setPolygon(aggregatedPolygon);
 
-        String aggregatedPolygonCentroidAsGeoJson = parkingSpaceRepo.calculateCentroidForPolygon(aggregatedPolygon.toString());
-        Point aggregatedPolygonCentroid = convertGeoJsonToPoint(aggregatedPolygonCentroidAsGeoJson);
+        Point aggregatedPolygonCentroid = geometryService.calculateCentroid(aggregatedPolygon);
 
-        saveParkingSpaceAndUpdateArea(overlappedExistingParkingSpace, aggregatedPolygonCentroid);
+        saveParkingSpace(aggregatedParkingSpace, aggregatedPolygonCentroid, batch);
     }
 
     /**
@@ -217,36 +450,62 @@ public class ParkingSpaceService {
      * with other neighboring polygons, and saves it.
      * @param newParkingSpace the parking space whose polygon has to be reshaped and saved
      * @param closestParkingSpaces list ot neighbors which intersect the new polygon
-     * @throws JsonProcessingException error on parsing a Geo JSON format
+     * @param batch the pending writes of the current ingest
+     * @throws IOException error on parsing a geometry returned by the geometry engine
      */
-    private void reshapePolygonAndSaveParkingSpace(ParkingSpace newParkingSpace, List<ParkingSpace> closestParkingSpaces)
-        throws JsonProcessingException {
-        String reshapedPolygonAsString = newParkingSpace.getPolygon().toString();
-        for (ParkingSpace neighborParkingSpace : closestParkingSpaces) {
-            reshapedPolygonAsString = parkingSpaceRepo.getDifferenceOfTwoPolygons(reshapedPolygonAsString, neighborParkingSpace.getId());
-        }
-
-        String reshapedPolygonAsGeoJson = parkingSpaceRepo.getGeoJsonForPolygon(reshapedPolygonAsString);
-        Polygon reshapedPolygon = convertGeoJsonToPolygon(reshapedPolygonAsGeoJson);
+    private void reshapePolygonAndSaveParkingSpace(ParkingSpace newParkingSpace, List<ParkingSpace> closestParkingSpaces,
+        ParkingSpaceBatch batch) throws IOException {
+        Geometry reshapedGeometry = geometryService.subtractParkingSpaces(newParkingSpace.getPolygon(), closestParkingSpaces);
+        Polygon reshapedPolygon = geometryService.toPolygon(reshapedGeometry);
         newParkingSpace.setPolygon(reshapedPolygon);
 
-        String reshapedPolygonCentroidAsGeoJson = parkingSpaceRepo.calculateCentroidForPolygon(reshapedPolygon.toString());
-        Point reshapedPolygonCentroid = convertGeoJsonToPoint(reshapedPolygonCentroidAsGeoJson);
+        Point reshapedPolygonCentroid = geometryService.calculateCentroid(reshapedPolygon);
 
-        saveParkingSpaceAndUpdateArea(newParkingSpace, reshapedPolygonCentroid);
+        saveParkingSpace(newParkingSpace, reshapedPolygonCentroid, batch);
     }
 
-    private void saveParkingSpaceAndUpdateArea(ParkingSpace parkingSpace, Point centroid) {
+    private void saveParkingSpace(ParkingSpace parkingSpace, Point centroid, ParkingSpaceBatch batch) {
+        // Area is set before the insert, so that no extra update per parking space is needed
         parkingSpace.setCentroid(centroid);
-        ParkingSpace savedParkingSpace = parkingSpaceRepo.insertParkingSpace(parkingSpace);
-        parkingSpaceRepo.updateAreaColumn(savedParkingSpace.getId());
+        parkingSpace.setArea(roundArea(geometryService.calculateArea(parkingSpace.getPolygon())));
+
+        batch.add(parkingSpace);
+        flushIfRequired(batch);
     }
 
-    public List<ParkingSpace> getClosestParkingSpacesByCentroidAndDistance(String centroid, int distance) {
-        return parkingSpaceRepo.findClosestParkingSpacesByCentroid(centroid, distance);
+    private void flushIfRequired(ParkingSpaceBatch batch) {
+        // The database engine refers to the neighbors by their ids, so they have to be written immediately
+        if (!geometryService.isLocalEngine() || batch.size() >= batchSize) {
+            flush(batch);
+        }
     }
 
-    public Optional<Long> getIdOfParkingSpaceByPointWithin(String point) {
-        return parkingSpaceRepo.getParkingSpaceIdByPointWithin(point);
+    /**
+     * Writes all pending parking spaces and overlapping parking spaces in one transaction. Ids are taken
+     * from pooled sequences, which lets Hibernate send the inserts as JDBC batches. The checkpoint of the
+     * file is moved in the same transaction. The written parking spaces are added to the index after the
+     * commit, so that a failed write leaves no parking spaces in the index which do not exist.
+     */
+    private void flush(ParkingSpaceBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ParkingSpace> parkingSpaces = batch.getParkingSpaces();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ParkingSpaceIndex index = getParkingSpaceIndex();
+                    parkingSpaces.forEach(index::update);
+                }
+            });
+            parkingSpaceRepo.saveAll(parkingSpaces);
+            overlappingParkingSpaceService.saveOverlappingParkingSpaces(batch.getOverlappingParkingSpaces());
+            batch.commitCheckpoint();
+        });
+        log.debug("Wrote {} pending parking spaces to '{}' table.", batch.size(), PARKING_SPACES);
+        batch.clear();
     }
+
 }
@@ -1,18 +1,25 @@
 package org.gradle.backendpostgresqlapi.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.gradle.backendpostgresqlapi.entity.ParkingPoint;
-import org.gradle.backendpostgresqlapi.entity.Timestamp;
 import org.gradle.backendpostgresqlapi.repository.TimestampRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
 import static org.gradle.backendpostgresqlapi.util.TableNameUtil.TIMESTAMPS;
 
 @Slf4j
 @Service
 public class TimestampService {
 
+    // Bounds of a history without a time range, all observations lie in between
+    private static final Instant EARLIEST_TIMESTAMP = Instant.EPOCH;
+    private static final Instant LATEST_TIMESTAMP = Instant.parse("9999-12-31T23:59:59Z");
+
     private final TimestampRepo timestampRepo;
 
     @Autowired
@@ -21,18 +28,32 @@ public class TimestampService {
     }
 
     /**
-     * Creates a timestamp index if it does not already exist.
+     * Converts a timestamp column of strings into a time column and creates the time indexes if they do not already exist.
      */
     public void initializeDbIndex() {
         log.debug("Initializing index for table '{}' ...", TIMESTAMPS);
-        timestampRepo.createDbIndex();
+        timestampRepo.migrateTimestampColumn();
+        timestampRepo.createTimeIndex();
+        timestampRepo.createParkingPointTimeIndex();
         log.info("Index for table '{}' created.", TIMESTAMPS);
     }
 
-    public void saveTimestamp(Timestamp timestamp) {
-        ParkingPoint parkingPoint = timestamp.getParkingPoint();
-        if (parkingPoint != null && timestampRepo.getMaxOneDuplicate(parkingPoint.getId(), timestamp.getTimestamp()) == 0) {
-            timestampRepo.save(timestamp);
-        }
+    /**
+     * Gets a page of the distinct observation times of an edited parking space in seconds in ascending order.
+     *
+     * @param from the inclusive start of the time range or null for no start
+     * @param to the exclusive end of the time range or null for no end
+     * @param after the time after which the page starts, i.e. the last time of the previous page, or null for the first page
+     * @param limit the maximal number of times
+     * @return the page of observation times
+     */
+    public List<Instant> getHistoryOfEditedParkingSpace(long editedParkingSpaceId, Instant from, Instant to, Instant after, int limit) {
+        Instant start = from != null ? from : EARLIEST_TIMESTAMP;
+        Instant end = to != null ? to : LATEST_TIMESTAMP;
+        // Without a cursor the page starts at the start of the range, otherwise at the second after the cursor
+        Instant notBefore = after != null ? after.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1) : start;
+        return timestampRepo.findHistoryPage(editedParkingSpaceId, start, end, notBefore, PageRequest.of(0, limit)).stream()
+                            .map(Instant::ofEpochSecond)
+                            .toList();
     }
 }
@@ -0,0 +1,189 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
+import org.gradle.backendpostgresqlapi.repository.EditedParkingSpaceRepo;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Generates Mapbox Vector Tiles of the edited parking spaces and keeps them in a size-bounded LRU cache.
+ * Cached tiles are invalidated by their bounds, when a parking space inside them changes. The keys of the
+ * affected tiles are computed for every cached zoom level, so the cost does not grow with the cache size.
+ * Where a large envelope spans more tiles than are cached at a zoom level, the cached tiles are checked instead.
+ */
+@Slf4j
+@Service
+public class VectorTileService {
+
+    public static final int MAX_ZOOM = 22;
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    // Above this number of changed envelopes, clearing the cache is cheaper than removing the affected tiles
+    private static final int MAX_INVALIDATED_ENVELOPES = 1000;
+
+    private final EditedParkingSpaceRepo editedParkingSpaceRepo;
+    // Access ordered, so that the first entry is the least recently used tile
+    private final LinkedHashMap<TileKey, byte[]> cachedTiles = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+    private final int[] cachedTilesPerZoom = new int[MAX_ZOOM + 1];
+    // Counts invalidations, so that a tile generated before an invalidation is not cached afterward
+    private long invalidations;
+
+    private record TileKey(int z, int x, int y) {}
+
+    @Autowired
+    public VectorTileService(EditedParkingSpaceRepo editedParkingSpaceRepo) {
+        this.editedParkingSpaceRepo = editedParkingSpaceRepo;
+    }
+
+    public static boolean isValidTile(int z, int x, int y) {
+        return z >= 0 && z <= MAX_ZOOM && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    /**
+     * Gets a tile from the cache or generates it with PostGIS.
+     *
+     * @return the encoded tile, empty if there is no parking space in it
+     */
+    public byte[] getTile(int z, int x, int y) {
+        TileKey tileKey = new TileKey(z, x, y);
+        long invalidationsBeforeGenerating;
+        synchronized (this) {
+            byte[] cachedTile = cachedTiles.get(tileKey);
+            if (cachedTile != null) {
+                return cachedTile;
+            }
+            invalidationsBeforeGenerating = invalidations;
+        }
+
+        byte[] tile = editedParkingSpaceRepo.getVectorTile(z, x, y);
+        if (tile == null) {
+            tile = new byte[0];
+        }
+
+        synchronized (this) {
+            if (invalidations == invalidationsBeforeGenerating) {
+                cacheTile(tileKey, tile);
+            }
+        }
+        return tile;
+    }
+
+    private void cacheTile(TileKey tileKey, byte[] tile) {
+        byte[] previousTile = cachedTiles.put(tileKey, tile);
+        if (previousTile != null) {
+            cachedBytes -= previousTile.length;
+        } else {
+            cachedTilesPerZoom[tileKey.z()]++;
+        }
+        cachedBytes += tile.length;
+
+        Iterator<Map.Entry<TileKey, byte[]>> leastRecentlyUsed = cachedTiles.entrySet().iterator();
+        while (cachedBytes > MAX_CACHED_BYTES && leastRecentlyUsed.hasNext()) {
+            Map.Entry<TileKey, byte[]> entry = leastRecentlyUsed.next();
+            cachedBytes -= entry.getValue().length;
+            cachedTilesPerZoom[entry.getKey().z()]--;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * Removes the cached tiles which contain one of the given edited parking spaces.
+     */
+    public void invalidateParkingSpaces(Collection<Long> editedParkingSpaceIds) {
+        if (editedParkingSpaceIds.isEmpty()) {
+            return;
+        }
+
+        List<Envelope> envelopes = editedParkingSpaceRepo.findProjectedByIdIn(editedParkingSpaceIds).stream()
+                                                         .map(EditedParkingSpaceView::getPolygon)
+                                                         .map(Polygon::getEnvelopeInternal)
+                                                         .toList();
+        invalidate(envelopes);
+    }
+
+    /**
+     * Removes the cached tiles which intersect one of the given envelopes in WGS84 degrees.
+     */
+    public void invalidate(Collection<Envelope> envelopes) {
+        if (envelopes.size() > MAX_INVALIDATED_ENVELOPES) {
+            invalidateAll();
+            return;
+        }
+
+        synchronized (this) {
+            invalidations++;
+            for (int z = 0; z <= MAX_ZOOM; z++) {
+                for (Envelope envelope : envelopes) {
+                    if (cachedTilesPerZoom[z] == 0) {
+                        break;
+                    }
+                    removeTiles(z, envelope);
+                }
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        cachedTiles.clear();
+        cachedBytes = 0;
+        Arrays.fill(cachedTilesPerZoom, 0);
+        log.debug("Vector tile cache cleared.");
+    }
+
+    /**
+     * Removes the cached tiles of a zoom level which intersect an envelope, including the neighboring tiles,
+     * because the geometries of a tile are clipped with a buffer around it. The keys are looked up one by one,
+     * unless there are fewer cached tiles at the zoom level than tiles in the range.
+     */
+    private void removeTiles(int z, Envelope envelope) {
+        int lastTile = (1 << z) - 1;
+        int minX = Math.max(0, lonToTileX(envelope.getMinX(), z) - 1);
+        int maxX = Math.min(lastTile, lonToTileX(envelope.getMaxX(), z) + 1);
+        int minY = Math.max(0, latToTileY(envelope.getMaxY(), z) - 1);
+        int maxY = Math.min(lastTile, latToTileY(envelope.getMinY(), z) + 1);
+
+        long spannedTiles = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        if (spannedTiles > cachedTilesPerZoom[z]) {
+            Iterator<Map.Entry<TileKey, byte[]>> entries = cachedTiles.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<TileKey, byte[]> entry = entries.next();
+                TileKey tileKey = entry.getKey();
+                if (tileKey.z() == z && tileKey.x() >= minX && tileKey.x() <= maxX
+                    && tileKey.y() >= minY && tileKey.y() <= maxY) {
+                    entries.remove();
+                    cachedBytes -= entry.getValue().length;
+                    cachedTilesPerZoom[z]--;
+                }
+            }
+            return;
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                byte[] removedTile = cachedTiles.remove(new TileKey(z, x, y));
+                if (removedTile != null) {
+                    cachedBytes -= removedTile.length;
+                    cachedTilesPerZoom[z]--;
+                }
+            }
+        }
+    }
+
+    private static int lonToTileX(double lon, int z) {
+        int tiles = 1 << z;
+        return Math.min(tiles - 1, Math.max(0, (int) Math.floor((lon + 180) / 360 * tiles)));
+    }
+
+    private static int latToTileY(double lat, int z) {
+        int tiles = 1 << z;
+        double latRad = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * tiles;
+        return Math.min(tiles - 1, Math.max(0, (int) Math.floor(y)));
+    }
+}
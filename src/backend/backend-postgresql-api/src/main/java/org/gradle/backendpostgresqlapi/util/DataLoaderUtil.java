@@ -3,50 +3,301 @@ package org.gradle.backendpostgresqlapi.util;
 import com.opencsv.exceptions.CsvValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.gradle.backendpostgresqlapi.enums.LoadStage;
 import org.gradle.backendpostgresqlapi.service.EditedParkingSpaceService;
+import org.gradle.backendpostgresqlapi.service.FileCheckpoint;
+import org.gradle.backendpostgresqlapi.service.LoadStatusService;
+import org.gradle.backendpostgresqlapi.service.LoadedFileService;
 import org.gradle.backendpostgresqlapi.service.ParkingPointService;
 import org.gradle.backendpostgresqlapi.service.ParkingSpaceService;
 import org.springframework.util.CollectionUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class DataLoaderUtil {
 
 	public static void loadDataIntoDatabase(List<String> filePaths, ParkingSpaceService parkingSpaceService,
-		EditedParkingSpaceService editedParkingSpaceService, ParkingPointService parkingPointService) throws IOException, CsvValidationException {
-		if (!CollectionUtils.isEmpty(filePaths)) {
-			loadFromParkingSpacesFiles(filePaths, parkingSpaceService, editedParkingSpaceService);
-			loadFromTimestampFiles(filePaths, parkingPointService);
-		} else {
+		EditedParkingSpaceService editedParkingSpaceService, ParkingPointService parkingPointService,
+		IngestConfig ingestConfig, LoadStatusService loadStatusService, LoadedFileService loadedFileService)
+		throws IOException, CsvValidationException {
+		if (CollectionUtils.isEmpty(filePaths)) {
 			log.warn("No data files configured for loading.");
+			loadStatusService.skipStage(LoadStage.PARKING_SPACES);
+			loadStatusService.skipStage(LoadStage.EDITED_PARKING_SPACES);
+			loadStatusService.skipStage(LoadStage.PARKING_POINTS);
+		} else if (ingestConfig.isConcurrentFileLoading()) {
+			loadConcurrently(filePaths, parkingSpaceService, editedParkingSpaceService, parkingPointService, ingestConfig,
+				loadStatusService, loadedFileService);
+		} else {
+			loadFromParkingSpacesFiles(filePaths, parkingSpaceService, editedParkingSpaceService, loadStatusService,
+				loadedFileService);
+			loadFromTimestampFiles(filePaths, parkingPointService, loadStatusService, loadedFileService);
 		}
 	}
 
+	/**
+	 * Runs a stage of the startup data load and records its progress.
+	 *
+	 * @param step the work of the stage, returning the number of rows it read or wrote
+	 */
+	public static void runStage(LoadStatusService loadStatusService, LoadStage stage, LoadingStep<Long> step)
+		throws IOException, CsvValidationException {
+		loadStatusService.startStage(stage);
+		loadStatusService.completeStage(stage, step.run());
+	}
+
 	private static void loadFromParkingSpacesFiles(List<String> filePaths, ParkingSpaceService parkingSpaceService,
-		EditedParkingSpaceService editedParkingSpaceService) throws IOException, CsvValidationException {
-		for (String filePath : filePaths.stream().filter(fileName -> !fileName.contains("timestamp")).toList()) {
-			String extension = FilenameUtils.getExtension(filePath).toLowerCase();
-
-			switch (extension) {
-				case "geojson" -> parkingSpaceService.loadGeoJson(filePath);
-				case "csv" -> parkingSpaceService.loadCsv(filePath);
-				default -> log.warn("Unsupported file format for file: {}", filePath);
+		EditedParkingSpaceService editedParkingSpaceService, LoadStatusService loadStatusService,
+		LoadedFileService loadedFileService) throws IOException, CsvValidationException {
+		runStage(loadStatusService, LoadStage.PARKING_SPACES, () -> {
+			long parkingSpaces = 0;
+			for (String filePath : getParkingSpacesFiles(filePaths)) {
+				String extension = FilenameUtils.getExtension(filePath).toLowerCase();
+
+				switch (extension) {
+					case "geojson" -> parkingSpaces += loadFile(loadStatusService, loadedFileService,
+						LoadStage.PARKING_SPACES, filePath, checkpoint -> parkingSpaceService.loadGeoJson(filePath, checkpoint));
+					case "csv" -> parkingSpaces += loadFile(loadStatusService, loadedFileService,
+						LoadStage.PARKING_SPACES, filePath, checkpoint -> parkingSpaceService.loadCsv(filePath, checkpoint));
+					default -> skipUnsupportedFile(loadStatusService, filePath);
+				}
 			}
-		}
+			return parkingSpaces;
+		});
+
+		// Copy data to edited_parking_spaces database, also when all files were skipped, since an interrupted
+		// previous run may have completed the parking spaces without copying them
+		runStage(loadStatusService, LoadStage.EDITED_PARKING_SPACES, editedParkingSpaceService::copyDataIntoDatabase);
+	}
 
-		// Copy data to edited_parking_spaces database
-		editedParkingSpaceService.copyDataIntoDatabase();
+	private static void loadFromTimestampFiles(List<String> filePaths, ParkingPointService parkingPointService,
+		LoadStatusService loadStatusService, LoadedFileService loadedFileService) throws IOException, CsvValidationException {
+		runStage(loadStatusService, LoadStage.PARKING_POINTS, () -> {
+			long parkingPoints = 0;
+			for (String filePath : getTimestampFiles(filePaths)) {
+				if (!FilenameUtils.getExtension(filePath).equalsIgnoreCase("geojson")) {
+					skipUnsupportedFile(loadStatusService, filePath);
+				} else {
+					parkingPoints += loadFile(loadStatusService, loadedFileService, LoadStage.PARKING_POINTS, filePath,
+						checkpoint -> parkingPointService.loadGeoJson(filePath, checkpoint));
+				}
+			}
+			return parkingPoints;
+		});
 	}
 
-	private static void loadFromTimestampFiles(List<String> filePaths, ParkingPointService parkingPointService) throws IOException {
-		for (String filePath : filePaths.stream().filter(fileName -> fileName.contains("timestamp")).toList()) {
-			if (!FilenameUtils.getExtension(filePath).equalsIgnoreCase("geojson")) {
-				log.warn("Unsupported file format for file: {}", filePath);
-			} else {
-				parkingPointService.loadGeoJson(filePath);
+	/**
+	 * Loads the files as a small graph of stages: the parking spaces files are parsed ahead while the previous ones are
+	 * processed, the parking spaces of each file are processed after the ones of the previous files, the copy into
+	 * edited_parking_spaces follows the last of them, and the timestamp files are loaded after the copy, each in committed
+	 * chunks like a sequential load. At most the configured number of parsed files is held in memory, and a semaphore
+	 * counts every database connection a stage uses, so that the connection pool is never exhausted.
+	 */
+	private static void loadConcurrently(List<String> filePaths, ParkingSpaceService parkingSpaceService,
+		EditedParkingSpaceService editedParkingSpaceService, ParkingPointService parkingPointService,
+		IngestConfig ingestConfig, LoadStatusService loadStatusService, LoadedFileService loadedFileService)
+		throws IOException, CsvValidationException {
+		int permits = ingestConfig.getDatabasePermits();
+		// The parallel ingest of parking spaces uses a connection per thread, all of which have to be counted
+		int parkingSpaceConnections = ingestConfig.isParallelIngest() ? ingestConfig.getParallelism() : 1;
+		if (parkingSpaceConnections > permits) {
+			throw new IllegalStateException("The parallel ingest uses " + parkingSpaceConnections
+				+ " database connections, but only " + permits + " database permits are configured for concurrent file loading");
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(ingestConfig.getFileParsingParallelism());
+		Semaphore parsedFilePermits = new Semaphore(permits);
+		Semaphore databasePermits = new Semaphore(permits, true);
+		log.info("Loading {} files with {} parsing threads and {} database permits...",
+			filePaths.size(), ingestConfig.getFileParsingParallelism(), permits);
+
+		try {
+			// The merge of parking spaces depends on the ones before, so their files form a chain
+			loadStatusService.startStage(LoadStage.PARKING_SPACES);
+			AtomicLong parkingSpaceRows = new AtomicLong();
+			CompletableFuture<Void> parkingSpacesLoaded = CompletableFuture.completedFuture(null);
+			for (String filePath : getParkingSpacesFiles(filePaths)) {
+				String extension = FilenameUtils.getExtension(filePath).toLowerCase();
+				if (!extension.equals("geojson") && !extension.equals("csv")) {
+					skipUnsupportedFile(loadStatusService, filePath);
+					continue;
+				}
+
+				// Acquired in the order of the files, so that the permits are never all held by files waiting for a previous one
+				acquire(parsedFilePermits, 1);
+				CompletableFuture<ParsedFile<List<ParkingSpace>>> parsed = CompletableFuture.supplyAsync(() -> unchecked(() ->
+					parseFile(loadStatusService, loadedFileService, databasePermits, LoadStage.PARKING_SPACES, filePath,
+						checkpoint -> parkingSpaceService.readParkingSpaces(filePath))), pool);
+				parkingSpacesLoaded = parkingSpacesLoaded.thenAcceptBothAsync(parsed, (previous, parsedFile) ->
+					withPermits(databasePermits, parkingSpaceConnections, () -> parkingSpaceRows.addAndGet(loadParsedFile(
+						loadStatusService, loadedFileService, parsedFile, parkingSpaces -> parkingSpaceService.loadParkingSpaces(
+							filePath, parkingSpaces, parsedFile.checkpoint())))), pool);
+				// Also when parsing or a previous file failed, so that the loop is not blocked
+				parkingSpacesLoaded.whenComplete((loaded, error) -> parsedFilePermits.release());
 			}
+
+			CompletableFuture<Void> editedParkingSpacesCopied = parkingSpacesLoaded.thenRunAsync(() -> {
+				loadStatusService.completeStage(LoadStage.PARKING_SPACES, parkingSpaceRows.get());
+				withPermits(databasePermits, 1, () -> {
+					runStage(loadStatusService, LoadStage.EDITED_PARKING_SPACES, editedParkingSpaceService::copyDataIntoDatabase);
+					return null;
+				});
+			}, pool);
+
+			AtomicLong parkingPointRows = new AtomicLong();
+			List<CompletableFuture<Void>> parkingPointsLoaded = new ArrayList<>();
+			for (String filePath : getTimestampFiles(filePaths)) {
+				if (!FilenameUtils.getExtension(filePath).equalsIgnoreCase("geojson")) {
+					skipUnsupportedFile(loadStatusService, filePath);
+					continue;
+				}
+
+				// Parsed while its chunks are loaded, so only one chunk of the file is held in memory
+				parkingPointsLoaded.add(editedParkingSpacesCopied.thenRunAsync(() ->
+					withPermits(databasePermits, 1, () -> {
+						loadStatusService.startStage(LoadStage.PARKING_POINTS);
+						return parkingPointRows.addAndGet(loadFile(loadStatusService, loadedFileService,
+							LoadStage.PARKING_POINTS, filePath, checkpoint -> parkingPointService.loadGeoJson(filePath, checkpoint)));
+					}), pool));
+			}
+
+			CompletableFuture.allOf(parkingPointsLoaded.toArray(CompletableFuture[]::new))
+							 .thenCombine(editedParkingSpacesCopied, (pointsLoaded, copied) -> null)
+							 .join();
+			loadStatusService.startStage(LoadStage.PARKING_POINTS);
+			loadStatusService.completeStage(LoadStage.PARKING_POINTS, parkingPointRows.get());
+			log.info("Loaded {} files.", filePaths.size());
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (cause instanceof CsvValidationException csvValidationException) {
+				throw csvValidationException;
+			}
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException("Loading data files failed", cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Loads a file unless the ledger of loaded files shows that it is unchanged since its last complete load.
+	 *
+	 * @return the number of loaded rows
+	 */
+	private static long loadFile(LoadStatusService loadStatusService, LoadedFileService loadedFileService, LoadStage stage,
+		String filePath, FileStep<Long> step) throws IOException, CsvValidationException {
+		loadStatusService.startFile(stage, filePath);
+		Optional<FileCheckpoint> checkpoint = loadedFileService.startFile(filePath);
+		if (checkpoint.isEmpty()) {
+			loadStatusService.skipFile(filePath);
+			return 0;
+		}
+
+		long rows = step.run(checkpoint.get());
+		loadedFileService.completeFile(checkpoint.get(), checkpoint.get().getRowOffset() + rows);
+		loadStatusService.completeFile(filePath, rows);
+		return rows;
+	}
+
+	/**
+	 * Parses a file unless it is unchanged since its last complete load, for the concurrent loading. Only the lookup
+	 * in the ledger of loaded files takes a database permit, the parsing does not use a connection.
+	 *
+	 * @return the parsed rows with the checkpoint of the file, or without both if the file is skipped
+	 */
+	private static <T> ParsedFile<T> parseFile(LoadStatusService loadStatusService, LoadedFileService loadedFileService,
+		Semaphore databasePermits, LoadStage stage, String filePath, FileStep<T> parser)
+		throws IOException, CsvValidationException {
+		loadStatusService.startFile(stage, filePath);
+		Optional<FileCheckpoint> checkpoint = withPermits(databasePermits, 1, () -> loadedFileService.startFile(filePath));
+		if (checkpoint.isEmpty()) {
+			loadStatusService.skipFile(filePath);
+			return new ParsedFile<>(null, null);
+		}
+		return new ParsedFile<>(checkpoint.get(), parser.run(checkpoint.get()));
+	}
+
+	private static <T> long loadParsedFile(LoadStatusService loadStatusService, LoadedFileService loadedFileService,
+		ParsedFile<T> parsedFile, ParsedFileLoader<T> loader) throws IOException, CsvValidationException {
+		if (parsedFile.checkpoint() == null) {
+			return 0;
+		}
+
+		long rows = loader.load(parsedFile.rows());
+		loadedFileService.completeFile(parsedFile.checkpoint(), parsedFile.checkpoint().getRowOffset() + rows);
+		loadStatusService.completeFile(parsedFile.checkpoint().getFilePath(), rows);
+		return rows;
+	}
+
+	private static void skipUnsupportedFile(LoadStatusService loadStatusService, String filePath) {
+		log.warn("Unsupported file format for file: {}", filePath);
+		loadStatusService.skipFile(filePath);
+	}
+
+	private static List<String> getParkingSpacesFiles(List<String> filePaths) {
+		return filePaths.stream().filter(fileName -> !fileName.contains("timestamp")).toList();
+	}
+
+	private static List<String> getTimestampFiles(List<String> filePaths) {
+		return filePaths.stream().filter(fileName -> fileName.contains("timestamp")).toList();
+	}
+
+	private static <T> T withPermits(Semaphore databasePermits, int permits, LoadingStep<T> step) {
+		acquire(databasePermits, permits);
+		try {
+			return unchecked(step);
+		} finally {
+			databasePermits.release(permits);
 		}
 	}
+
+	private static void acquire(Semaphore semaphore, int permits) {
+		try {
+			semaphore.acquire(permits);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		}
+	}
+
+	private static <T> T unchecked(LoadingStep<T> step) {
+		try {
+			return step.run();
+		} catch (IOException | CsvValidationException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	@FunctionalInterface
+	public interface LoadingStep<T> {
+		T run() throws IOException, CsvValidationException;
+	}
+
+	@FunctionalInterface
+	private interface FileStep<T> {
+		T run(FileCheckpoint checkpoint) throws IOException, CsvValidationException;
+	}
+
+	@FunctionalInterface
+	private interface ParsedFileLoader<T> {
+		long load(T rows) throws IOException, CsvValidationException;
+	}
+
+	private record ParsedFile<T>(FileCheckpoint checkpoint, T rows) {}
 }
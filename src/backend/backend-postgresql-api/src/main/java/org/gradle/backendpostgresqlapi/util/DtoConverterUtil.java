@@ -1,6 +1,7 @@
 package org.gradle.backendpostgresqlapi.util;
 
 import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceDto;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
 import org.gradle.backendpostgresqlapi.entity.EditedParkingSpace;
 
 public class DtoConverterUtil {
@@ -17,4 +18,17 @@ public class DtoConverterUtil {
 			.position(editedParkingSpace.getPosition().getDisplayName())
 			.build();
 	}
+
+	public static EditedParkingSpaceDto convertToDto(EditedParkingSpaceView editedParkingSpaceView) {
+
+		return EditedParkingSpaceDto.builder()
+			.id(editedParkingSpaceView.getId())
+			.parkingSpaceId(editedParkingSpaceView.getParkingSpaceId())
+			.coordinates(editedParkingSpaceView.getPolygon().getCoordinates())
+			.occupied(editedParkingSpaceView.isOccupied())
+			.area(editedParkingSpaceView.getArea())
+			.capacity(editedParkingSpaceView.getCapacity())
+			.position(editedParkingSpaceView.getPosition().getDisplayName())
+			.build();
+	}
 }
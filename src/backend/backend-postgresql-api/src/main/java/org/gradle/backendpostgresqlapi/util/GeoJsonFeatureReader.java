@@ -0,0 +1,93 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the features of a GeoJSON feature collection one after another from a stream. Only the
+ * current feature is kept as a tree, so the memory usage does not depend on the size of the file.
+ */
+public class GeoJsonFeatureReader implements Iterator<JsonNode>, Closeable {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String FEATURES_PROPERTY = "features";
+
+    private final JsonParser parser;
+    private JsonNode nextFeature;
+    private boolean finished;
+
+    public GeoJsonFeatureReader(InputStream inputStream) throws IOException {
+        this.parser = mapper.getFactory().createParser(inputStream);
+        this.finished = !moveToFeatures();
+    }
+
+    /**
+     * Moves the parser into the array of the top-level 'features' property and skips all other properties.
+     *
+     * @return true if the features array was found
+     */
+    private boolean moveToFeatures() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (FEATURES_PROPERTY.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next feature without consuming it.
+     *
+     * @return the next feature or null if there are no more features
+     */
+    public JsonNode peek() {
+        return hasNext() ? nextFeature : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextFeature == null && !finished) {
+            try {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    nextFeature = mapper.readTree(parser);
+                } else {
+                    finished = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading GeoJSON feature", e);
+            }
+        }
+        return nextFeature != null;
+    }
+
+    @Override
+    public JsonNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JsonNode feature = nextFeature;
+        nextFeature = null;
+        return feature;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,209 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import org.locationtech.jts.geom.*;
+
+/**
+ * Geodesic calculations on WGS84 coordinates, which are done inside the JVM instead of PostGIS.
+ * Areas are calculated in a Lambert azimuthal equal-area projection centered on the geometry, so that
+ * the projected area equals the area on the ellipsoid. Centroids follow the definition of PostGIS.
+ */
+public class GeodesicUtil {
+
+    // WGS84 ellipsoid, which is also used by PostGIS for the geography type
+    private static final double SEMI_MAJOR_AXIS = 6378137.0;
+    private static final double FLATTENING = 1 / 298.257223563;
+    private static final double ECCENTRICITY_SQUARED = FLATTENING * (2 - FLATTENING);
+    private static final double ECCENTRICITY = Math.sqrt(ECCENTRICITY_SQUARED);
+
+    private static final double AUTHALIC_Q_POLE = authalicQ(1.0);
+    private static final double AUTHALIC_RADIUS = SEMI_MAJOR_AXIS * Math.sqrt(AUTHALIC_Q_POLE / 2);
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    /**
+     * Calculates the area of a geometry on the WGS84 ellipsoid.
+     *
+     * @param geometry a geometry with longitude/latitude coordinates
+     * @return the area in square meters
+     */
+    public static double area(Geometry geometry) {
+        if (geometry.isEmpty()) {
+            return 0.0;
+        }
+        EqualAreaProjection projection = EqualAreaProjection.centeredOn(geometry);
+        return projection.project(geometry).getArea();
+    }
+
+    /**
+     * Calculates the centroid of a polygonal geometry with the same definition as 'ST_Centroid(geography)' of
+     * PostGIS: every ring is split into triangles with the first point of the geometry, and the centers of the
+     * triangles are averaged on the unit sphere, weighted by their areas on the ellipsoid.
+     *
+     * @param geometry a polygon or multipolygon with longitude/latitude coordinates
+     * @return the centroid with longitude/latitude coordinates
+     */
+    public static Point centroid(Geometry geometry) {
+        Coordinate reference = geometry.getCoordinate();
+        double[] weightedSum = new double[3];
+        double weightSum = 0;
+
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Polygon polygon = (Polygon) geometry.getGeometryN(i);
+            for (int r = -1; r < polygon.getNumInteriorRing(); r++) {
+                LineString ring = r < 0 ? polygon.getExteriorRing() : polygon.getInteriorRingN(r);
+                Coordinate[] coordinates = ring.getCoordinates();
+                for (int c = 0; c < coordinates.length - 1; c++) {
+                    Coordinate first = coordinates[c];
+                    Coordinate second = coordinates[c + 1];
+                    // Like PostGIS, the weight is the unsigned area of the triangle
+                    double weight = area(geometryFactory.createPolygon(new Coordinate[] {first, second, reference, first}));
+                    double[] center = normalize(add(add(toUnitVector(first), toUnitVector(second)), toUnitVector(reference)));
+                    for (int k = 0; k < 3; k++) {
+                        weightedSum[k] += center[k] * weight;
+                    }
+                    weightSum += weight;
+                }
+            }
+        }
+
+        if (weightSum == 0) {
+            // Degenerate geometries have no area to weight the triangles with
+            return geometry.getCentroid();
+        }
+        return geometryFactory.createPoint(toCoordinate(normalize(weightedSum)));
+    }
+
+    /**
+     * Calculates the distance between two points on the WGS84 ellipsoid. The ellipsoid is approximated locally
+     * by its radii of curvature, which is accurate to millimeters for the short distances between parking spaces.
+     *
+     * @param first a point with longitude/latitude coordinates
+     * @param second a point with longitude/latitude coordinates
+     * @return the distance in meters
+     */
+    public static double distance(Coordinate first, Coordinate second) {
+        double meanLatitude = Math.toRadians((first.y + second.y) / 2);
+        double deltaX = Math.toRadians(second.x - first.x) * primeVerticalRadius(meanLatitude) * Math.cos(meanLatitude);
+        double deltaY = Math.toRadians(second.y - first.y) * meridionalRadius(meanLatitude);
+        return Math.hypot(deltaX, deltaY);
+    }
+
+    /**
+     * Creates an envelope around a point, which contains every point within the given distance.
+     *
+     * @param center a point with longitude/latitude coordinates
+     * @param distance the distance in meters
+     * @return an envelope with longitude/latitude coordinates
+     */
+    public static Envelope envelopeWithinDistance(Coordinate center, double distance) {
+        return expandByDistance(new Envelope(center), distance);
+    }
+
+    /**
+     * Expands an envelope, so that it contains every point within the given distance of the original envelope.
+     *
+     * @param envelope an envelope with longitude/latitude coordinates
+     * @param distance the distance in meters
+     * @return a new envelope with longitude/latitude coordinates
+     */
+    public static Envelope expandByDistance(Envelope envelope, double distance) {
+        // Widen the envelope slightly, so that it stays a superset despite the local approximation
+        double paddedDistance = distance * 1.01;
+        double maxAbsoluteLatitude = Math.max(Math.abs(envelope.getMinY()), Math.abs(envelope.getMaxY()));
+        double deltaLatitude = Math.toDegrees(paddedDistance / meridionalRadius(Math.toRadians(maxAbsoluteLatitude)));
+        double maxLatitude = Math.toRadians(Math.min(89.0, maxAbsoluteLatitude + deltaLatitude));
+        double deltaLongitude = Math.toDegrees(paddedDistance / (primeVerticalRadius(maxLatitude) * Math.cos(maxLatitude)));
+        return new Envelope(envelope.getMinX() - deltaLongitude, envelope.getMaxX() + deltaLongitude,
+            envelope.getMinY() - deltaLatitude, envelope.getMaxY() + deltaLatitude);
+    }
+
+    /**
+     * Rounds an area the same way as the 'ROUND(CAST(ST_AREA(...) AS NUMERIC),2)' statements do.
+     */
+    public static double roundArea(double area) {
+        return Math.round(area * 100) / 100.0;
+    }
+
+    private static double[] toUnitVector(Coordinate coordinate) {
+        double longitude = Math.toRadians(coordinate.x);
+        double latitude = Math.toRadians(coordinate.y);
+        return new double[] {Math.cos(latitude) * Math.cos(longitude), Math.cos(latitude) * Math.sin(longitude), Math.sin(latitude)};
+    }
+
+    private static Coordinate toCoordinate(double[] unitVector) {
+        return new Coordinate(Math.toDegrees(Math.atan2(unitVector[1], unitVector[0])), Math.toDegrees(Math.asin(unitVector[2])));
+    }
+
+    private static double[] add(double[] first, double[] second) {
+        return new double[] {first[0] + second[0], first[1] + second[1], first[2] + second[2]};
+    }
+
+    private static double[] normalize(double[] vector) {
+        double length = Math.sqrt(vector[0] * vector[0] + vector[1] * vector[1] + vector[2] * vector[2]);
+        return new double[] {vector[0] / length, vector[1] / length, vector[2] / length};
+    }
+
+    private static double meridionalRadius(double latitude) {
+        double sinLatitude = Math.sin(latitude);
+        return SEMI_MAJOR_AXIS * (1 - ECCENTRICITY_SQUARED)
+            / Math.pow(1 - ECCENTRICITY_SQUARED * sinLatitude * sinLatitude, 1.5);
+    }
+
+    private static double primeVerticalRadius(double latitude) {
+        double sinLatitude = Math.sin(latitude);
+        return SEMI_MAJOR_AXIS / Math.sqrt(1 - ECCENTRICITY_SQUARED * sinLatitude * sinLatitude);
+    }
+
+    private static double authalicQ(double sinLatitude) {
+        double eSinLatitude = ECCENTRICITY * sinLatitude;
+        return (1 - ECCENTRICITY_SQUARED) * (sinLatitude / (1 - eSinLatitude * eSinLatitude)
+            - Math.log((1 - eSinLatitude) / (1 + eSinLatitude)) / (2 * ECCENTRICITY));
+    }
+
+    private static double toAuthalicLatitude(double latitude) {
+        double ratio = authalicQ(Math.sin(latitude)) / AUTHALIC_Q_POLE;
+        return Math.asin(Math.max(-1.0, Math.min(1.0, ratio)));
+    }
+
+    /**
+     * Lambert azimuthal equal-area projection of the ellipsoid, using the authalic sphere.
+     */
+    private record EqualAreaProjection(double centerLongitude, double sinCenterBeta, double cosCenterBeta) {
+
+        static EqualAreaProjection centeredOn(Geometry geometry) {
+            Coordinate center = geometry.getEnvelopeInternal().centre();
+            double centerBeta = toAuthalicLatitude(Math.toRadians(center.y));
+            return new EqualAreaProjection(Math.toRadians(center.x), Math.sin(centerBeta), Math.cos(centerBeta));
+        }
+
+        Geometry project(Geometry geometry) {
+            Geometry projected = geometry.copy();
+            projected.apply(new CoordinateSequenceFilter() {
+                @Override
+                public void filter(CoordinateSequence sequence, int i) {
+                    double beta = toAuthalicLatitude(Math.toRadians(sequence.getY(i)));
+                    double deltaLongitude = Math.toRadians(sequence.getX(i)) - centerLongitude;
+                    double sinBeta = Math.sin(beta);
+                    double cosBeta = Math.cos(beta);
+                    double cosDeltaLongitude = Math.cos(deltaLongitude);
+
+                    double k = Math.sqrt(2 / (1 + sinCenterBeta * sinBeta + cosCenterBeta * cosBeta * cosDeltaLongitude));
+                    sequence.setOrdinate(i, CoordinateSequence.X, AUTHALIC_RADIUS * k * cosBeta * Math.sin(deltaLongitude));
+                    sequence.setOrdinate(i, CoordinateSequence.Y,
+                        AUTHALIC_RADIUS * k * (cosCenterBeta * sinBeta - sinCenterBeta * cosBeta * cosDeltaLongitude));
+                }
+
+                @Override
+                public boolean isDone() {
+                    return false;
+                }
+
+                @Override
+                public boolean isGeometryChanged() {
+                    return true;
+                }
+            });
+            return projected;
+        }
+    }
+}
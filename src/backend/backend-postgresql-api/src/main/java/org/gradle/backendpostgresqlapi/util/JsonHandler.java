@@ -2,10 +2,10 @@ package org.gradle.backendpostgresqlapi.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
-import org.gradle.backendpostgresqlapi.entity.ParkingPoint;
-import org.gradle.backendpostgresqlapi.entity.Timestamp;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
@@ -13,14 +13,12 @@ import org.locationtech.jts.geom.Polygon;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import static org.gradle.backendpostgresqlapi.util.DateConverterUtil.formatMillisecondsDateToString;
 
 @Slf4j
 public class JsonHandler {
@@ -32,18 +30,23 @@ public class JsonHandler {
     private static final String COORDINATES_PROPERTY = "coordinates";
     private static final String TYPE_PROPERTY = "type";
     private static final String GEOMETRIES_PROPERTY = "geometries";
-    private static final String FEATURES_PROPERTY = "features";
     private static final String GEOMETRY_PROPERTY = "geometry";
+    private static final String PROPERTIES_PROPERTY = "properties";
     private static final String DATE_TIME_PROPERTY = "DateTime";
+    private static final String LON_PROPERTY = "lon";
+    private static final String LAT_PROPERTY = "lat";
+    private static final String EPOCH_MILLIS_PROPERTY = "epochMillis";
+    private static final ObjectReader observationLineReader = new ObjectMapper().readerFor(JsonNode.class);
 
     /**
-     * This method reads a GeoJSON file from the filesystem and parses it as string.
+     * This method opens a GeoJSON file from the filesystem for reading its features one after another.
+     * The caller has to close the returned reader.
      *
      * @param filePath the location of the file
-     * @return string, which contains the file's data
-     * @throws IOException an error when there is a problem reading the GeoJSON file
+     * @return a reader over the features of the file
+     * @throws IOException an error when there is a problem opening the GeoJSON file
      */
-    public static String getJsonDataFromFile(ResourceLoader resourceLoader, String filePath) throws IOException {
+    public static GeoJsonFeatureReader openGeoJsonFeatureReader(ResourceLoader resourceLoader, String filePath) throws IOException {
         log.debug("Reading GeoJSON data from file: {}", filePath);
 
         Resource resource = resourceLoader.getResource("classpath:" + filePath);
@@ -51,38 +54,38 @@ public class JsonHandler {
             throw new FileNotFoundException("File not found: " + filePath);
         }
 
-        InputStream inputStream = resource.getInputStream();
-        String geoJsonData;
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            geoJsonData = reader.lines().collect(Collectors.joining("\n"));
-        } catch (IOException e) {
-            log.error("Error reading GeoJSON data", e);
-            throw e;
-        }
+        return new GeoJsonFeatureReader(resource.getInputStream());
+    }
 
-        return geoJsonData;
+    /**
+     * Checks if a feature contains a parking space, i.e. its geometry is a polygon or multipolygon.
+     */
+    public static boolean isParkingSpaceFeature(JsonNode feature) {
+        String geometryType = feature.path(GEOMETRY_PROPERTY).path(TYPE_PROPERTY).asText();
+        return geometryType.equals(POLYGON_TYPE) || geometryType.equals(MULTI_POLYGON_TYPE);
+    }
+
+    /**
+     * Checks if a feature contains a parking point, i.e. it has a timestamp property.
+     */
+    public static boolean isParkingPointFeature(JsonNode feature) {
+        return feature.path(PROPERTIES_PROPERTY).has(DATE_TIME_PROPERTY);
     }
 
     /**
-     * This method gets the polygon data from a geoJSON string.
+     * This method gets the polygon of a parking space feature. Of a multipolygon the polygon with the most
+     * points is taken, like for the results of the database.
      *
-     * @param geoJson a string, which contains polygons and their data
-     * @return a list with all processed polygons
-     * @throws JsonProcessingException an error when there is a problem processing the GeoJSON string
+     * @param feature a GeoJSON feature with a polygon or multipolygon geometry
+     * @return the processed polygon
      */
-    public static List<Polygon> getPolygonsFromGeoJson(String geoJson) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode rootNode = mapper.readTree(geoJson);
-        JsonNode features = rootNode.path(FEATURES_PROPERTY);
-
-        List<Polygon> polygons = new ArrayList<>();
-        for (JsonNode feature : features) {
-            JsonNode coordinates = feature.path(GEOMETRY_PROPERTY).path(COORDINATES_PROPERTY);
-            Polygon polygon = convertJsonNodeToPolygon(coordinates);
-            polygons.add(polygon);
+    public static Polygon convertFeatureToPolygon(JsonNode feature) {
+        JsonNode geometryNode = feature.path(GEOMETRY_PROPERTY);
+        JsonNode coordinatesNode = geometryNode.path(COORDINATES_PROPERTY);
+        if (geometryNode.path(TYPE_PROPERTY).asText().equals(MULTI_POLYGON_TYPE)) {
+            coordinatesNode = getPolygonWithMostPoints(coordinatesNode);
         }
-        log.info("Successfully read {} parking spaces from JSON file.", polygons.size());
-        return polygons;
+        return convertJsonNodeToPolygon(coordinatesNode);
     }
 
     /**
@@ -109,46 +112,69 @@ public class JsonHandler {
     }
 
     /**
-     * This method gets the parking point data from a geoJSON string.
+     * This method adds the coordinates and the time of a parking point feature to a chunk of observations.
      *
-     * @param geoJson a string, which contains parking points and their data
-     * @return a hash map with all processed parking points and their timestamps
-     * @throws JsonProcessingException an error when there is a problem processing the GeoJSON string
+     * @param feature a GeoJSON feature with a point geometry and a timestamp property in milliseconds
+     * @param observations the chunk to add the observation to
      */
-    public static HashMap<ParkingPoint, Timestamp> getParkingPointsAndTimestampsFromFile(String geoJson) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode rootNode = mapper.readTree(geoJson);
-        JsonNode features = rootNode.path(FEATURES_PROPERTY);
-
-        HashMap<ParkingPoint, Timestamp> pointTimestampHashMap = new HashMap<>();
-        for (JsonNode feature : features) {
-            JsonNode timestampNode = feature.path("properties").path(DATE_TIME_PROPERTY);
-            JsonNode coordinatesNode = feature.path(GEOMETRY_PROPERTY).path(COORDINATES_PROPERTY);
-            ParkingPoint parkingPoint = convertJsonNodeToParkingPoint(coordinatesNode);
-            Timestamp timestamp = convertJsonNodeToTimestamp(timestampNode);
-            pointTimestampHashMap.put(parkingPoint, timestamp);
-        }
-
-        log.info("Successfully read {} parking points and their timestamps from JSON file.", pointTimestampHashMap.size());
-        return pointTimestampHashMap;
+    public static void addFeatureToObservations(JsonNode feature, ObservationBuffer observations) {
+        JsonNode coordinatesNode = feature.path(GEOMETRY_PROPERTY).path(COORDINATES_PROPERTY);
+        JsonNode timestampNode = feature.path(PROPERTIES_PROPERTY).path(DATE_TIME_PROPERTY);
+        observations.append(coordinatesNode.get(0).asDouble(), coordinatesNode.get(1).asDouble(), Long.parseLong(timestampNode.asText()));
     }
 
-    private static ParkingPoint convertJsonNodeToParkingPoint(JsonNode coordinatesNode) {
-        ParkingPoint parkingPoint = new ParkingPoint();
-
-        Coordinate coordinate = new Coordinate(coordinatesNode.get(0).asDouble(), coordinatesNode.get(1).asDouble());
-        parkingPoint.setPoint(geometryFactory.createPoint(coordinate));
+    /**
+     * Reads posted observations, either as newline-delimited JSON objects with 'lon', 'lat' and 'epochMillis',
+     * or as a GeoJSON feature collection of points in the format of the data files.
+     *
+     * @param ndjson true for newline-delimited JSON, false for GeoJSON
+     * @param maxObservations the maximal number of observations
+     * @return the observations
+     * @throws IllegalArgumentException if an observation is invalid or there are too many
+     * @throws IOException if the input is not valid JSON
+     */
+    public static ObservationBuffer readObservations(InputStream inputStream, boolean ndjson, int maxObservations) throws IOException {
+        ObservationBuffer observations = new ObservationBuffer(0);
+        if (ndjson) {
+            try (MappingIterator<JsonNode> lines = observationLineReader.readValues(inputStream)) {
+                while (lines.hasNextValue()) {
+                    JsonNode line = lines.nextValue();
+                    JsonNode epochMillisNode = line.path(EPOCH_MILLIS_PROPERTY);
+                    if (!epochMillisNode.canConvertToLong()) {
+                        throw new IllegalArgumentException("Observation without integer '" + EPOCH_MILLIS_PROPERTY + "': " + line);
+                    }
+                    appendObservation(observations, line.path(LON_PROPERTY).asDouble(Double.NaN),
+                        line.path(LAT_PROPERTY).asDouble(Double.NaN), epochMillisNode.asLong(), maxObservations);
+                }
+            }
+            return observations;
+        }
 
-        return parkingPoint;
+        try (GeoJsonFeatureReader featureReader = new GeoJsonFeatureReader(inputStream)) {
+            while (featureReader.hasNext()) {
+                JsonNode feature = featureReader.next();
+                JsonNode coordinatesNode = feature.path(GEOMETRY_PROPERTY).path(COORDINATES_PROPERTY);
+                if (!isParkingPointFeature(feature) || coordinatesNode.size() < 2) {
+                    throw new IllegalArgumentException("Feature is not a parking point with a '" + DATE_TIME_PROPERTY + "' property");
+                }
+                appendObservation(observations, coordinatesNode.get(0).asDouble(Double.NaN), coordinatesNode.get(1).asDouble(Double.NaN),
+                    Long.parseLong(feature.path(PROPERTIES_PROPERTY).path(DATE_TIME_PROPERTY).asText()), maxObservations);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return observations;
     }
 
-    private static Timestamp convertJsonNodeToTimestamp(JsonNode timestampNode) {
-        Timestamp timestamp = new Timestamp();
-
-        long milliseconds = Long.parseLong(timestampNode.asText());
-        timestamp.setTimestamp(formatMillisecondsDateToString(milliseconds));
-
-        return timestamp;
+    private static void appendObservation(ObservationBuffer observations, double lon, double lat, long epochMillis,
+        int maxObservations) {
+        if (!(lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90)) {
+            throw new IllegalArgumentException("Observation has invalid coordinates: " + lon + ", " + lat);
+        }
+        if (observations.size() == maxObservations) {
+            throw new IllegalArgumentException("A batch must not contain more than " + maxObservations + " observations");
+        }
+        observations.append(lon, lat, epochMillis);
     }
 
     public static Point convertGeoJsonToPoint(String pointGeoJson) throws JsonProcessingException {
@@ -184,18 +210,21 @@ public class JsonHandler {
 
         // In case of multipolygon due to ST_Difference method get the biggest polygon
         if (typeNode.asText().equals(MULTI_POLYGON_TYPE)) {
-            int indexChildWithMaxSize = 0;
-            int maxSize = 0;
-            for(int i = 0; i < coordinatesNode.size(); i++) {
-                int currentSize = coordinatesNode.get(i).get(0).size();
-                if(currentSize > maxSize) {
-                    maxSize = currentSize;
-                    indexChildWithMaxSize = i;
-                }
-            }
-
-            coordinatesNode = coordinatesNode.get(indexChildWithMaxSize);
+            coordinatesNode = getPolygonWithMostPoints(coordinatesNode);
         }
         return convertJsonNodeToPolygon(coordinatesNode);
     }
+
+    private static JsonNode getPolygonWithMostPoints(JsonNode multiPolygonCoordinatesNode) {
+        int indexChildWithMaxSize = 0;
+        int maxSize = 0;
+        for(int i = 0; i < multiPolygonCoordinatesNode.size(); i++) {
+            int currentSize = multiPolygonCoordinatesNode.get(i).get(0).size();
+            if(currentSize > maxSize) {
+                maxSize = currentSize;
+                indexChildWithMaxSize = i;
+            }
+        }
+        return multiPolygonCoordinatesNode.get(indexChildWithMaxSize);
+    }
 }
@@ -0,0 +1,134 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import java.util.Arrays;
+
+/**
+ * Chunk of parking point observations stored in parallel primitive arrays. It replaces one entity,
+ * geometry and formatted string per observation while a file is loaded, so the chunk is the only
+ * memory held for the observations, whatever the size of the file.
+ */
+public class ObservationBuffer {
+
+    private double[] lons;
+    private double[] lats;
+    private long[] epochMillis;
+    private int size;
+
+    public ObservationBuffer(int capacity) {
+        this.lons = new double[capacity];
+        this.lats = new double[capacity];
+        this.epochMillis = new long[capacity];
+    }
+
+    public void add(double lon, double lat, long millis) {
+        lons[size] = lon;
+        lats[size] = lat;
+        epochMillis[size] = millis;
+        size++;
+    }
+
+    /**
+     * Adds an observation and grows the arrays if the chunk is full, for chunks whose size is not known in advance.
+     */
+    public void append(double lon, double lat, long millis) {
+        if (isFull()) {
+            int capacity = Math.max(16, lons.length * 2);
+            lons = Arrays.copyOf(lons, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            epochMillis = Arrays.copyOf(epochMillis, capacity);
+        }
+        add(lon, lat, millis);
+    }
+
+    /**
+     * Adds all observations of another chunk, which must fit into the remaining capacity.
+     */
+    public void addAll(ObservationBuffer other) {
+        System.arraycopy(other.lons, 0, lons, size, other.size);
+        System.arraycopy(other.lats, 0, lats, size, other.size);
+        System.arraycopy(other.epochMillis, 0, epochMillis, size, other.size);
+        size += other.size;
+    }
+
+    public int remainingCapacity() {
+        return lons.length - size;
+    }
+
+    public double getLon(int index) {
+        return lons[index];
+    }
+
+    public double getLat(int index) {
+        return lats[index];
+    }
+
+    public long getEpochMillis(int index) {
+        return epochMillis[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == lons.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes repeated observations of the same point at the same time, keeping the order of the first occurrences.
+     * An open addressing table of indexes is used, so no object is created per observation.
+     *
+     * @return the number of removed observations
+     */
+    public int deduplicate() {
+        int tableSize = Integer.highestOneBit(Math.max(size, 1) * 2) * 2;
+        int[] table = new int[tableSize]; // Stores index + 1 of the kept observation, 0 marks an empty slot
+        int mask = tableSize - 1;
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            int slot = hash(lons[i], lats[i], epochMillis[i]) & mask;
+            boolean duplicate = false;
+            while (table[slot] != 0) {
+                int other = table[slot] - 1;
+                if (isSameObservation(other, lons[i], lats[i], epochMillis[i])) {
+                    duplicate = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (!duplicate) {
+                lons[kept] = lons[i];
+                lats[kept] = lats[i];
+                epochMillis[kept] = epochMillis[i];
+                table[slot] = kept + 1;
+                kept++;
+            }
+        }
+
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    private boolean isSameObservation(int index, double lon, double lat, long millis) {
+        return Double.compare(lons[index], lon) == 0 && Double.compare(lats[index], lat) == 0 && epochMillis[index] == millis;
+    }
+
+    private static int hash(double lon, double lat, long millis) {
+        long bits = Double.doubleToLongBits(lon);
+        bits = bits * 31 + Double.doubleToLongBits(lat);
+        bits = bits * 31 + millis;
+        int hash = (int) (bits ^ (bits >>> 32));
+        return hash ^ (hash >>> 16);
+    }
+}
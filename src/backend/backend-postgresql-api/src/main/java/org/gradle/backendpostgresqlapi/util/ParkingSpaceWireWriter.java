@@ -0,0 +1,296 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
+import org.gradle.backendpostgresqlapi.enums.WireFormat;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.*;
+
+/**
+ * Writes edited parking spaces one at a time in one of the {@link WireFormat}s, so that a list of any size can
+ * be written to a stream. Closing the writer completes the list and closes the stream.
+ * <p>
+ * The binary format is a sequence of records until the end of the stream, all numbers big-endian:
+ * <pre>
+ * int32   number of bytes of the rest of the record
+ * int64   id
+ * int64   parking space id
+ * byte    occupied (0 or 1)
+ * int32   capacity (-1 if unknown)
+ * float64 area
+ * byte    ordinal of the ParkingPosition
+ * int16   number of rings, the exterior ring first
+ * per ring: int32 number of vertices, then per vertex int32 longitude and int32 latitude in 1e-7 degrees.
+ *           The first vertex of a record is absolute, every further one is the difference to its predecessor.
+ * </pre>
+ */
+public abstract class ParkingSpaceWireWriter implements Closeable {
+
+    // 6 decimals are about 0.1 m, well below the accuracy of the mapped parking spaces
+    private static final double QUANTIZATION_FACTOR = 1e6;
+    private static final int QUANTIZATION_DECIMALS = 6;
+    private static final double BINARY_FACTOR = 1e7;
+
+    public static ParkingSpaceWireWriter create(WireFormat format, OutputStream outputStream, ObjectWriter dtoWriter)
+        throws IOException {
+        return switch (format) {
+            case JSON -> new JsonListWriter(dtoWriter, outputStream);
+            case GEOJSON -> new GeoJsonWriter(dtoWriter.createGenerator(outputStream));
+            case POLYLINE -> new PolylineWriter(dtoWriter.createGenerator(outputStream));
+            case BINARY -> new BinaryWriter(outputStream);
+        };
+    }
+
+    public abstract void write(EditedParkingSpaceView editedParkingSpace) throws IOException;
+
+    /**
+     * Sends the bytes written so far, e.g. the start of the list before the first parking space is read.
+     */
+    public abstract void flush() throws IOException;
+
+    private static class JsonListWriter extends ParkingSpaceWireWriter {
+        private final ObjectWriter dtoWriter;
+        private final JsonGenerator generator;
+
+        JsonListWriter(ObjectWriter dtoWriter, OutputStream outputStream) throws IOException {
+            this.dtoWriter = dtoWriter;
+            this.generator = dtoWriter.createGenerator(outputStream);
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(EditedParkingSpaceView editedParkingSpace) throws IOException {
+            dtoWriter.writeValue(generator, DtoConverterUtil.convertToDto(editedParkingSpace));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    private static class GeoJsonWriter extends ParkingSpaceWireWriter {
+        private final JsonGenerator generator;
+        private final StringBuilder numberBuffer = new StringBuilder(16);
+
+        GeoJsonWriter(JsonGenerator generator) throws IOException {
+            this.generator = generator;
+            generator.writeStartObject();
+            generator.writeStringField("type", "FeatureCollection");
+            generator.writeArrayFieldStart("features");
+        }
+
+        @Override
+        public void write(EditedParkingSpaceView editedParkingSpace) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "Feature");
+            generator.writeNumberField("id", editedParkingSpace.getId());
+
+            generator.writeObjectFieldStart("geometry");
+            generator.writeStringField("type", "Polygon");
+            generator.writeArrayFieldStart("coordinates");
+            Polygon polygon = editedParkingSpace.getPolygon();
+            for (int ring = 0; ring <= polygon.getNumInteriorRing(); ring++) {
+                CoordinateSequence coordinates = getRing(polygon, ring);
+                generator.writeStartArray();
+                for (int i = 0; i < coordinates.size(); i++) {
+                    generator.writeStartArray();
+                    writeQuantized(coordinates.getX(i));
+                    writeQuantized(coordinates.getY(i));
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("properties");
+            generator.writeNumberField("parkingSpaceId", editedParkingSpace.getParkingSpaceId());
+            writeAttributes(generator, editedParkingSpace);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+
+        /**
+         * Writes a coordinate rounded to a fixed number of decimals without trailing zeros.
+         */
+        private void writeQuantized(double value) throws IOException {
+            long scaled = Math.round(value * QUANTIZATION_FACTOR);
+            numberBuffer.setLength(0);
+            if (scaled < 0) {
+                numberBuffer.append('-');
+                scaled = -scaled;
+            }
+            numberBuffer.append(scaled / (long) QUANTIZATION_FACTOR);
+
+            long fraction = scaled % (long) QUANTIZATION_FACTOR;
+            int decimals = QUANTIZATION_DECIMALS;
+            while (decimals > 0 && fraction % 10 == 0) {
+                fraction /= 10;
+                decimals--;
+            }
+            if (decimals > 0) {
+                numberBuffer.append('.');
+                String digits = Long.toString(fraction);
+                for (int i = digits.length(); i < decimals; i++) {
+                    numberBuffer.append('0');
+                }
+                numberBuffer.append(digits);
+            }
+            generator.writeNumber(numberBuffer.toString());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        }
+    }
+
+    private static class PolylineWriter extends ParkingSpaceWireWriter {
+        private final JsonGenerator generator;
+        private final StringBuilder polylineBuffer = new StringBuilder(256);
+
+        PolylineWriter(JsonGenerator generator) throws IOException {
+            this.generator = generator;
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(EditedParkingSpaceView editedParkingSpace) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", editedParkingSpace.getId());
+            generator.writeNumberField("parkingSpaceId", editedParkingSpace.getParkingSpaceId());
+            writeAttributes(generator, editedParkingSpace);
+
+            generator.writeArrayFieldStart("rings");
+            Polygon polygon = editedParkingSpace.getPolygon();
+            for (int ring = 0; ring <= polygon.getNumInteriorRing(); ring++) {
+                generator.writeString(encodePolyline(getRing(polygon, ring)));
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        /**
+         * Encodes a ring with the polyline algorithm, latitude before longitude, in 1e-6 degrees.
+         */
+        private String encodePolyline(CoordinateSequence coordinates) {
+            polylineBuffer.setLength(0);
+            long previousLat = 0;
+            long previousLon = 0;
+            for (int i = 0; i < coordinates.size(); i++) {
+                long lat = Math.round(coordinates.getY(i) * QUANTIZATION_FACTOR);
+                long lon = Math.round(coordinates.getX(i) * QUANTIZATION_FACTOR);
+                appendPolylineValue(lat - previousLat);
+                appendPolylineValue(lon - previousLon);
+                previousLat = lat;
+                previousLon = lon;
+            }
+            return polylineBuffer.toString();
+        }
+
+        private void appendPolylineValue(long delta) {
+            long value = delta < 0 ? ~(delta << 1) : delta << 1;
+            while (value >= 0x20) {
+                polylineBuffer.append((char) ((0x20 | (value & 0x1f)) + 63));
+                value >>= 5;
+            }
+            polylineBuffer.append((char) (value + 63));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    private static class BinaryWriter extends ParkingSpaceWireWriter {
+        private final DataOutputStream output;
+        // A record is assembled first, because its length is written in front of it
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(512);
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+
+        BinaryWriter(OutputStream outputStream) {
+            this.output = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        }
+
+        @Override
+        public void write(EditedParkingSpaceView editedParkingSpace) throws IOException {
+            recordBytes.reset();
+            record.writeLong(editedParkingSpace.getId());
+            record.writeLong(editedParkingSpace.getParkingSpaceId());
+            record.writeByte(editedParkingSpace.isOccupied() ? 1 : 0);
+            record.writeInt(editedParkingSpace.getCapacity() != null ? editedParkingSpace.getCapacity() : -1);
+            record.writeDouble(editedParkingSpace.getArea());
+            record.writeByte(editedParkingSpace.getPosition().ordinal());
+
+            Polygon polygon = editedParkingSpace.getPolygon();
+            record.writeShort(polygon.getNumInteriorRing() + 1);
+            int previousLon = 0;
+            int previousLat = 0;
+            for (int ring = 0; ring <= polygon.getNumInteriorRing(); ring++) {
+                CoordinateSequence coordinates = getRing(polygon, ring);
+                record.writeInt(coordinates.size());
+                for (int i = 0; i < coordinates.size(); i++) {
+                    int lon = (int) Math.round(coordinates.getX(i) * BINARY_FACTOR);
+                    int lat = (int) Math.round(coordinates.getY(i) * BINARY_FACTOR);
+                    record.writeInt(lon - previousLon);
+                    record.writeInt(lat - previousLat);
+                    previousLon = lon;
+                    previousLat = lat;
+                }
+            }
+
+            output.writeInt(recordBytes.size());
+            recordBytes.writeTo(output);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    private static void writeAttributes(JsonGenerator generator, EditedParkingSpaceView editedParkingSpace) throws IOException {
+        generator.writeBooleanField("occupied", editedParkingSpace.isOccupied());
+        generator.writeNumberField("area", editedParkingSpace.getArea());
+        if (editedParkingSpace.getCapacity() != null) {
+            generator.writeNumberField("capacity", editedParkingSpace.getCapacity());
+        } else {
+            generator.writeNullField("capacity");
+        }
+        generator.writeStringField("position", editedParkingSpace.getPosition().getDisplayName());
+    }
+
+    private static CoordinateSequence getRing(Polygon polygon, int ring) {
+        return ring == 0 ? polygon.getExteriorRing().getCoordinateSequence()
+            : polygon.getInteriorRingN(ring - 1).getCoordinateSequence();
+    }
+}
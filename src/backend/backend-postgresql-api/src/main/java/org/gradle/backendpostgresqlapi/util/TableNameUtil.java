@@ -7,4 +7,19 @@ public class TableNameUtil {
 	public static final String OVERLAPPING_PARKING_SPACES = "overlapping_parking_spaces";
 	public static final String PARKING_POINTS = "parking_points";
 	public static final String TIMESTAMPS = "timestamps";
+	public static final String PARKING_SPACE_NEIGHBORS = "parking_space_neighbors";
+	public static final String LOADED_FILES = "loaded_files";
+
+	// Temporary tables of a bulk load of parking points, which only exist during its transaction
+	public static final String OBSERVATIONS_STAGING = "observations_staging";
+	public static final String PARKING_POINTS_STAGING = "parking_points_staging";
+
+	// Name of the layer of the edited parking spaces in vector tiles
+	public static final String PARKING_SPACES_TILE_LAYER = "parking_spaces";
+
+	public static final String PARKING_SPACES_SEQUENCE = "parking_spaces_seq";
+	public static final String EDITED_PARKING_SPACES_SEQUENCE = "edited_parking_spaces_seq";
+	public static final String OVERLAPPING_PARKING_SPACES_SEQUENCE = "overlapping_parking_spaces_seq";
+	// Number of ids Hibernate reserves with one sequence call, so that inserts can be batched
+	public static final int SEQUENCE_ALLOCATION_SIZE = 50;
 }
@@ -0,0 +1,47 @@
+package org.gradle.backendpostgresqlapi.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WireFormatTest {
+
+    @Test
+    void missingHeaderOrWildcardSelectsJson() {
+        assertEquals(Optional.of(WireFormat.JSON), WireFormat.fromAcceptHeader(null));
+        assertEquals(Optional.of(WireFormat.JSON), WireFormat.fromAcceptHeader(" "));
+        assertEquals(Optional.of(WireFormat.JSON), WireFormat.fromAcceptHeader("*/*"));
+        assertEquals(Optional.of(WireFormat.JSON), WireFormat.fromAcceptHeader("application/*"));
+    }
+
+    @Test
+    void exactMediaTypeSelectsItsFormat() {
+        assertEquals(Optional.of(WireFormat.GEOJSON), WireFormat.fromAcceptHeader("application/geo+json"));
+        assertEquals(Optional.of(WireFormat.POLYLINE),
+            WireFormat.fromAcceptHeader("application/vnd.parking-spaces.polyline+json"));
+        assertEquals(Optional.of(WireFormat.BINARY),
+            WireFormat.fromAcceptHeader("application/vnd.parking-spaces.binary"));
+    }
+
+    @Test
+    void higherQualityIsPreferred() {
+        assertEquals(Optional.of(WireFormat.BINARY),
+            WireFormat.fromAcceptHeader("application/json;q=0.5, application/vnd.parking-spaces.binary"));
+        assertEquals(Optional.of(WireFormat.JSON),
+            WireFormat.fromAcceptHeader("application/geo+json;q=0.1, application/json;q=0.9"));
+    }
+
+    @Test
+    void specificMediaTypeIsPreferredOverWildcard() {
+        assertEquals(Optional.of(WireFormat.GEOJSON), WireFormat.fromAcceptHeader("*/*, application/geo+json"));
+    }
+
+    @Test
+    void unsupportedOrRefusedMediaTypesSelectNothing() {
+        assertEquals(Optional.empty(), WireFormat.fromAcceptHeader("text/html"));
+        assertEquals(Optional.empty(), WireFormat.fromAcceptHeader("application/geo+json;q=0"));
+        assertEquals(Optional.empty(), WireFormat.fromAcceptHeader("not a media type"));
+    }
+}
@@ -0,0 +1,115 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.gradle.backendpostgresqlapi.util.JsonHandler;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the local engine picks the same polygon out of a geometry as the database engine, which converts
+ * the GeoJSON result of PostGIS with {@link JsonHandler#convertGeoJsonToPolygon(String)}.
+ */
+class GeometryServiceTest {
+
+    // The repository is only used by the database engine
+    private final GeometryService geometryService = new GeometryService(null, new IngestConfig());
+    private final WKTReader wktReader = new WKTReader();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void polygonKeepsOnlyItsExteriorRing() throws Exception {
+        assertSamePolygonAsDatabase("POLYGON ((13.4 52.5, 13.401 52.5, 13.401 52.501, 13.4 52.501, 13.4 52.5),"
+            + " (13.4004 52.5004, 13.4006 52.5004, 13.4006 52.5006, 13.4004 52.5006, 13.4004 52.5004))");
+    }
+
+    @Test
+    void multiPolygonKeepsPolygonWithMostPoints() throws Exception {
+        assertSamePolygonAsDatabase("MULTIPOLYGON (((13.4 52.5, 13.401 52.5, 13.401 52.501, 13.4 52.5)),"
+            + " ((13.402 52.5, 13.4021 52.5, 13.4021 52.5001, 13.40205 52.50015, 13.402 52.5001, 13.402 52.5)))");
+    }
+
+    @Test
+    void multiPolygonWithEqualPointsKeepsFirstPolygon() throws Exception {
+        assertSamePolygonAsDatabase("MULTIPOLYGON (((13.4 52.5, 13.401 52.5, 13.401 52.501, 13.4 52.5)),"
+            + " ((13.402 52.5, 13.403 52.5, 13.403 52.501, 13.402 52.5)))");
+    }
+
+    @Test
+    void geometryCollectionKeepsFirstPolygonalPart() throws Exception {
+        assertSamePolygonAsDatabase("GEOMETRYCOLLECTION (LINESTRING (13.3 52.4, 13.31 52.41),"
+            + " POLYGON ((13.4 52.5, 13.401 52.5, 13.401 52.501, 13.4 52.5)),"
+            + " POLYGON ((13.5 52.5, 13.501 52.5, 13.501 52.501, 13.5 52.5)))");
+    }
+
+    @Test
+    void geometryWithoutPolygonIsRejected() throws ParseException {
+        Geometry lineString = wktReader.read("LINESTRING (13.3 52.4, 13.31 52.41)");
+        assertThrows(IllegalArgumentException.class, () -> geometryService.toPolygon(lineString));
+    }
+
+    @Test
+    void intersectionAreaOfHalfOverlappingParkingSpaces() throws Exception {
+        Polygon first = (Polygon) wktReader.read("POLYGON ((13.4 52.5, 13.4002 52.5, 13.4002 52.5001, 13.4 52.5001, 13.4 52.5))");
+        Polygon second = (Polygon) wktReader.read("POLYGON ((13.4001 52.5, 13.4003 52.5, 13.4003 52.5001, 13.4001 52.5001, 13.4001 52.5))");
+        ParkingSpace existingParkingSpace = new ParkingSpace();
+        existingParkingSpace.setPolygon(second);
+
+        double area = geometryService.calculateArea(first);
+        double intersectionArea = geometryService.calculateIntersectionArea(first, existingParkingSpace);
+        assertEquals(area / 2, intersectionArea, 0.001);
+        assertTrue(intersectionArea / area > ParkingSpaceService.MIN_THRESHOLD_FOR_BEING_OVERLAPPED);
+    }
+
+    private void assertSamePolygonAsDatabase(String wkt) throws ParseException, JsonProcessingException {
+        Geometry geometry = wktReader.read(wkt);
+        Polygon expected = JsonHandler.convertGeoJsonToPolygon(toGeoJson(geometry).toString());
+        Polygon actual = geometryService.toPolygon(geometry);
+        assertTrue(expected.equalsExact(actual), () -> "Expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * Writes a geometry like 'ST_AsGeoJSON' does, for the geometry types PostGIS returns here.
+     */
+    private ObjectNode toGeoJson(Geometry geometry) {
+        ObjectNode node = objectMapper.createObjectNode().put("type", geometry.getGeometryType());
+        if (geometry instanceof MultiPolygon || !(geometry instanceof GeometryCollection)) {
+            node.set("coordinates", toCoordinates(geometry));
+        } else {
+            ArrayNode geometries = node.putArray("geometries");
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                geometries.add(toGeoJson(geometry.getGeometryN(i)));
+            }
+        }
+        return node;
+    }
+
+    private ArrayNode toCoordinates(Geometry geometry) {
+        ArrayNode coordinates = objectMapper.createArrayNode();
+        if (geometry instanceof MultiPolygon) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                coordinates.add(toCoordinates(geometry.getGeometryN(i)));
+            }
+        } else if (geometry instanceof Polygon polygon) {
+            coordinates.add(toCoordinates(polygon.getExteriorRing()));
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                coordinates.add(toCoordinates(polygon.getInteriorRingN(i)));
+            }
+        } else {
+            for (Coordinate coordinate : geometry.getCoordinates()) {
+                coordinates.addArray().add(coordinate.x).add(coordinate.y);
+            }
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,145 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.configuration.IngestConfig;
+import org.gradle.backendpostgresqlapi.dto.ObservationBatchStatus;
+import org.gradle.backendpostgresqlapi.enums.ObservationBatchState;
+import org.gradle.backendpostgresqlapi.util.ObservationBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks how posted batches are combined into micro-batches, with the loads recorded by a mocked service.
+ */
+class ObservationIngestServiceTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    private final ParkingPointService parkingPointService = mock(ParkingPointService.class);
+    // The epoch millis of the observations of every loaded micro-batch
+    private final BlockingQueue<List<Long>> loadedMicroBatches = new LinkedBlockingQueue<>();
+    private ObservationIngestService ingestService;
+
+    private void startIngest(Duration maxBatchDelay) {
+        IngestConfig ingestConfig = new IngestConfig();
+        ingestConfig.setObservationChunkSize(CHUNK_SIZE);
+        ingestConfig.setLiveQueueCapacity(10);
+        ingestConfig.setLiveMaxBatchDelay(maxBatchDelay);
+        doAnswer(invocation -> {
+            ObservationBuffer microBatch = invocation.getArgument(0);
+            List<Long> epochMillis = new ArrayList<>();
+            for (int i = 0; i < microBatch.size(); i++) {
+                epochMillis.add(microBatch.getEpochMillis(i));
+            }
+            loadedMicroBatches.add(epochMillis);
+            return null;
+        }).when(parkingPointService).loadObservations(any());
+        ingestService = new ObservationIngestService(parkingPointService, ingestConfig);
+    }
+
+    @AfterEach
+    void stopIngest() {
+        ingestService.stopWorker();
+    }
+
+    @Test
+    void batchWhichDoesNotFitIsCarriedOverToNextMicroBatch() throws InterruptedException {
+        startIngest(Duration.ofMillis(200));
+        UUID first = submit(1, 2, 3);
+        UUID second = submit(4, 5);
+        UUID third = submit(6);
+        ingestService.startWorker();
+
+        assertEquals(List.of(1L, 2L, 3L), loadedMicroBatches.poll(5, TimeUnit.SECONDS));
+        assertEquals(List.of(4L, 5L, 6L), loadedMicroBatches.poll(5, TimeUnit.SECONDS));
+        assertNull(loadedMicroBatches.poll(300, TimeUnit.MILLISECONDS));
+
+        for (UUID id : List.of(first, second, third)) {
+            assertEquals(ObservationBatchState.COMPLETED, ingestService.getBatchStatus(id).orElseThrow().state());
+        }
+        assertEquals(0, ingestService.getQueueStatus().queuedObservations());
+        assertEquals(6, ingestService.getQueueStatus().processedObservations());
+    }
+
+    @Test
+    void fullChunkIsCombinedWithinDelay() throws InterruptedException {
+        startIngest(Duration.ofMillis(200));
+        submit(1, 2);
+        submit(3, 4);
+        ingestService.startWorker();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), loadedMicroBatches.poll(5, TimeUnit.SECONDS));
+        assertNull(loadedMicroBatches.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void batchArrivingAfterDelayStartsNextMicroBatch() throws InterruptedException {
+        startIngest(Duration.ofMillis(50));
+        ingestService.startWorker();
+        submit(1);
+
+        assertEquals(List.of(1L), loadedMicroBatches.poll(5, TimeUnit.SECONDS));
+        submit(2);
+        assertEquals(List.of(2L), loadedMicroBatches.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void batchesBeyondQueueCapacityAreRejected() {
+        startIngest(Duration.ofMillis(200));
+        submit(1, 2, 3, 4);
+        submit(5, 6, 7, 8);
+
+        assertTrue(ingestService.submit(observations(9, 10, 11)).isEmpty());
+        assertEquals(8, ingestService.getQueueStatus().queuedObservations());
+    }
+
+    @Test
+    void failedMicroBatchMarksAllItsBatches() throws InterruptedException {
+        startIngest(Duration.ofMillis(200));
+        doThrow(new IllegalStateException("database unavailable")).when(parkingPointService).loadObservations(any());
+        UUID first = submit(1);
+        UUID second = submit(2);
+        ingestService.startWorker();
+
+        verify(parkingPointService, timeout(5000)).loadObservations(any());
+        for (UUID id : List.of(first, second)) {
+            ObservationBatchStatus status = awaitCompletion(id);
+            assertEquals(ObservationBatchState.FAILED, status.state());
+            assertEquals("database unavailable", status.error());
+        }
+        assertEquals(2, ingestService.getQueueStatus().failedBatches());
+    }
+
+    private UUID submit(long... epochMillis) {
+        return ingestService.submit(observations(epochMillis)).orElseThrow().id();
+    }
+
+    private ObservationBatchStatus awaitCompletion(UUID id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ObservationBatchStatus status = ingestService.getBatchStatus(id).orElseThrow();
+        while (status.completedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = ingestService.getBatchStatus(id).orElseThrow();
+        }
+        return status;
+    }
+
+    private static ObservationBuffer observations(long... epochMillis) {
+        ObservationBuffer observations = new ObservationBuffer(epochMillis.length);
+        for (long millis : epochMillis) {
+            observations.add(13.4, 52.5, millis);
+        }
+        return observations;
+    }
+}
@@ -0,0 +1,76 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.repository.EditedParkingSpaceRepo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.gradle.backendpostgresqlapi.service.EditedParkingSpaceService.DAYS_FOR_VALID_OCCUPANCY;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks that a later observation replaces the queued expiry of a parking space instead of adding a second one.
+ */
+class OccupancyExpirySchedulerTest {
+
+    private static final Duration OCCUPANCY_WINDOW = Duration.ofDays(DAYS_FOR_VALID_OCCUPANCY);
+
+    private final EditedParkingSpaceRepo editedParkingSpaceRepo = mock(EditedParkingSpaceRepo.class);
+    private final OccupancyExpiryScheduler scheduler =
+        new OccupancyExpiryScheduler(editedParkingSpaceRepo, mock(EditedParkingSpaceService.class));
+
+    @Test
+    void lapsedOccupancyExpires() {
+        when(editedParkingSpaceRepo.expireOccupancy(anyCollection(), anyInt())).thenReturn(List.of(1L));
+        scheduler.scheduleExpiry(1, lapsed());
+
+        scheduler.expireOccupancies();
+
+        verify(editedParkingSpaceRepo).expireOccupancy(Set.of(1L), DAYS_FOR_VALID_OCCUPANCY);
+    }
+
+    @Test
+    void laterObservationReplacesQueuedExpiry() {
+        scheduler.scheduleExpiry(1, lapsed());
+        scheduler.scheduleExpiry(1, Instant.now());
+
+        scheduler.expireOccupancies();
+        scheduler.expireOccupancies();
+
+        verify(editedParkingSpaceRepo, never()).expireOccupancy(anyCollection(), anyInt());
+    }
+
+    @Test
+    void earlierObservationDoesNotReplaceQueuedExpiry() {
+        scheduler.scheduleExpiry(1, Instant.now());
+        scheduler.scheduleExpiry(1, lapsed());
+
+        scheduler.expireOccupancies();
+
+        verify(editedParkingSpaceRepo, never()).expireOccupancy(anyCollection(), anyInt());
+    }
+
+    @Test
+    void parkingSpaceIsExpiredOnceAndCanBeScheduledAgain() {
+        scheduler.scheduleExpiry(1, lapsed());
+        scheduler.scheduleExpiry(1, lapsed().plusSeconds(1));
+        scheduler.scheduleExpiry(2, lapsed());
+
+        scheduler.expireOccupancies();
+        scheduler.scheduleExpiry(1, lapsed());
+        scheduler.expireOccupancies();
+
+        verify(editedParkingSpaceRepo).expireOccupancy(Set.of(1L, 2L), DAYS_FOR_VALID_OCCUPANCY);
+        verify(editedParkingSpaceRepo).expireOccupancy(Set.of(1L), DAYS_FOR_VALID_OCCUPANCY);
+        verifyNoMoreInteractions(editedParkingSpaceRepo);
+    }
+
+    private static Instant lapsed() {
+        return Instant.now().minus(OCCUPANCY_WINDOW).minusSeconds(60);
+    }
+}
@@ -0,0 +1,90 @@
+package org.gradle.backendpostgresqlapi.service;
+
+import org.gradle.backendpostgresqlapi.entity.ParkingSpace;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that the segments keep the input order, so that processing them gives the same result as processing
+ * the parking spaces one by one.
+ */
+class ParkingSpacePartitionerTest {
+
+    // Cells of one degree, so that their edges are at whole degrees
+    private final ParkingSpacePartitioner partitioner = new ParkingSpacePartitioner(20, 111_320);
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Test
+    void parkingSpacesInsideCellsFormOneSegment() {
+        ParkingSpace first = parkingSpace(13.5, 52.5);
+        ParkingSpace second = parkingSpace(14.5, 52.5);
+        ParkingSpace third = parkingSpace(13.6, 52.6);
+
+        List<ParkingSpacePartitioner.Segment> segments = partitioner.partition(List.of(first, second, third));
+
+        assertEquals(1, segments.size());
+        assertEquals(List.of(List.of(first, third), List.of(second)), segments.get(0).cells());
+        assertNull(segments.get(0).borderParkingSpace());
+    }
+
+    @Test
+    void chunkIsCutAtEachBorderParkingSpace() {
+        ParkingSpace first = parkingSpace(13.5, 52.5);
+        ParkingSpace border = parkingSpace(13.9999, 52.5);
+        ParkingSpace second = parkingSpace(13.5, 52.6);
+        ParkingSpace secondBorder = parkingSpace(14.5, 52.9999);
+
+        List<ParkingSpacePartitioner.Segment> segments = partitioner.partition(List.of(first, border, second, secondBorder));
+
+        assertEquals(2, segments.size());
+        assertEquals(List.of(List.of(first)), segments.get(0).cells());
+        assertSame(border, segments.get(0).borderParkingSpace());
+        assertEquals(List.of(List.of(second)), segments.get(1).cells());
+        assertSame(secondBorder, segments.get(1).borderParkingSpace());
+    }
+
+    @Test
+    void consecutiveBorderParkingSpacesKeepTheirOrder() {
+        ParkingSpace border = parkingSpace(13.9999, 52.5);
+        ParkingSpace secondBorder = parkingSpace(13.5, 52.9999);
+        ParkingSpace last = parkingSpace(13.5, 52.5);
+
+        List<ParkingSpacePartitioner.Segment> segments = partitioner.partition(List.of(border, secondBorder, last));
+
+        assertEquals(3, segments.size());
+        assertEquals(List.of(), segments.get(0).cells());
+        assertSame(border, segments.get(0).borderParkingSpace());
+        assertEquals(List.of(), segments.get(1).cells());
+        assertSame(secondBorder, segments.get(1).borderParkingSpace());
+        assertEquals(List.of(List.of(last)), segments.get(2).cells());
+        assertNull(segments.get(2).borderParkingSpace());
+    }
+
+    @Test
+    void reachOfNeighborDistanceCrossesCellEdge() {
+        // About 10 m west of the edge, the polygon itself lies inside the cell but its neighbors may not
+        ParkingSpace nearEdge = parkingSpace(13.99982, 52.5);
+
+        List<ParkingSpacePartitioner.Segment> segments = partitioner.partition(List.of(nearEdge));
+
+        assertEquals(1, segments.size());
+        assertSame(nearEdge, segments.get(0).borderParkingSpace());
+    }
+
+    private ParkingSpace parkingSpace(double minLon, double minLat) {
+        double maxLon = minLon + 0.00004;
+        double maxLat = minLat + 0.00002;
+        ParkingSpace parkingSpace = new ParkingSpace();
+        parkingSpace.setPolygon(geometryFactory.createPolygon(new Coordinate[] {
+            new Coordinate(minLon, minLat), new Coordinate(maxLon, minLat), new Coordinate(maxLon, maxLat),
+            new Coordinate(minLon, maxLat), new Coordinate(minLon, minLat)}));
+        return parkingSpace;
+    }
+}
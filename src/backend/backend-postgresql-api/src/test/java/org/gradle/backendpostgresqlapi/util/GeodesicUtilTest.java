@@ -0,0 +1,113 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the local calculations with reference values of the WGS84 ellipsoid, which PostGIS returns for the
+ * geography type. Areas of quadrangles bounded by meridians and parallels follow from the closed formula of the
+ * ellipsoidal zone, distances from the inverse geodesic problem.
+ */
+class GeodesicUtilTest {
+
+    // The area column is rounded to centimeters, the merge thresholds are relative to the area
+    private static final double AREA_TOLERANCE = 0.001;
+    private static final double DISTANCE_TOLERANCE = 0.001;
+    // About a centimeter
+    private static final double CENTROID_TOLERANCE_DEGREES = 1e-7;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Test
+    void areaOfParkingSpaceInBerlin() {
+        assertEquals(151.13654383, GeodesicUtil.area(box(13.4, 13.4002, 52.5, 52.5001)), AREA_TOLERANCE);
+    }
+
+    @Test
+    void areaOfParkingSpaceAtEquator() {
+        assertEquals(123.09072080, GeodesicUtil.area(box(0, 0.0001, 0, 0.0001)), AREA_TOLERANCE);
+    }
+
+    @Test
+    void areaOfParkingSpaceInSouthernHemisphere() {
+        assertEquals(203.51845122, GeodesicUtil.area(box(-58.4, -58.3998, -34.6001, -34.6)), AREA_TOLERANCE);
+    }
+
+    @Test
+    void areaDoesNotDependOnRingOrientation() {
+        Polygon box = box(13.4, 13.4002, 52.5, 52.5001);
+        assertEquals(GeodesicUtil.area(box), GeodesicUtil.area(box.reverse()), 1e-9);
+    }
+
+    @Test
+    void distanceAlongEquator() {
+        assertEquals(11.13194908, GeodesicUtil.distance(new Coordinate(0, 0), new Coordinate(0.0001, 0)), DISTANCE_TOLERANCE);
+    }
+
+    @Test
+    void distanceAlongMeridian() {
+        assertEquals(11.12768339, GeodesicUtil.distance(new Coordinate(13.4, 52.5), new Coordinate(13.4, 52.5001)),
+            DISTANCE_TOLERANCE);
+    }
+
+    @Test
+    void diagonalDistances() {
+        assertEquals(17.55838576, GeodesicUtil.distance(new Coordinate(13.4, 52.5), new Coordinate(13.4002, 52.5001)),
+            DISTANCE_TOLERANCE);
+        assertEquals(40.59872545, GeodesicUtil.distance(new Coordinate(13.4, 52.5), new Coordinate(13.4005, 52.4998)),
+            DISTANCE_TOLERANCE);
+    }
+
+    @Test
+    void centroidOfSymmetricParkingSpaceIsItsCenter() {
+        Point centroid = GeodesicUtil.centroid(box(13.4, 13.4002, 52.5, 52.5001));
+        assertEquals(13.4001, centroid.getX(), CENTROID_TOLERANCE_DEGREES);
+        assertEquals(52.50005, centroid.getY(), CENTROID_TOLERANCE_DEGREES);
+    }
+
+    @Test
+    void centroidDoesNotDependOnStartPoint() {
+        Polygon triangle = polygon(13.4, 52.5, 13.4003, 52.5, 13.4, 52.5002, 13.4, 52.5);
+        Polygon rotated = polygon(13.4003, 52.5, 13.4, 52.5002, 13.4, 52.5, 13.4003, 52.5);
+        Point centroid = GeodesicUtil.centroid(triangle);
+        Point rotatedCentroid = GeodesicUtil.centroid(rotated);
+        assertEquals(centroid.getX(), rotatedCentroid.getX(), CENTROID_TOLERANCE_DEGREES);
+        assertEquals(centroid.getY(), rotatedCentroid.getY(), CENTROID_TOLERANCE_DEGREES);
+        // A third of the way from the right angle, like a planar triangle at this size
+        assertEquals(13.4001, centroid.getX(), CENTROID_TOLERANCE_DEGREES);
+        assertEquals(52.5 + 0.0002 / 3, centroid.getY(), CENTROID_TOLERANCE_DEGREES);
+    }
+
+    @Test
+    void envelopeWithinDistanceContainsPointsAtThatDistance() {
+        Coordinate center = new Coordinate(13.4, 52.5);
+        // Just below 20 m east, a degree of longitude is about 67.9 km here
+        Coordinate east = new Coordinate(13.4 + 19.9 / 67_914.0, 52.5);
+        assertTrue(GeodesicUtil.distance(center, east) < 20);
+        assertTrue(GeodesicUtil.envelopeWithinDistance(center, 20).contains(east));
+    }
+
+    @Test
+    void roundAreaLikeTheDatabase() {
+        assertEquals(151.14, GeodesicUtil.roundArea(151.13654383));
+        assertEquals(0.01, GeodesicUtil.roundArea(0.005));
+    }
+
+    private Polygon box(double minLon, double maxLon, double minLat, double maxLat) {
+        return polygon(minLon, minLat, maxLon, minLat, maxLon, maxLat, minLon, maxLat, minLon, minLat);
+    }
+
+    private Polygon polygon(double... lonLat) {
+        Coordinate[] coordinates = new Coordinate[lonLat.length / 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(lonLat[2 * i], lonLat[2 * i + 1]);
+        }
+        return geometryFactory.createPolygon(coordinates);
+    }
+}
@@ -0,0 +1,78 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservationBufferTest {
+
+    @Test
+    void deduplicateKeepsFirstOccurrencesInOrder() {
+        ObservationBuffer observations = new ObservationBuffer(6);
+        observations.add(13.4, 52.5, 1000);
+        observations.add(13.5, 52.5, 1000);
+        observations.add(13.4, 52.5, 1000);
+        observations.add(13.4, 52.5, 2000);
+        observations.add(13.5, 52.5, 1000);
+        observations.add(13.4, 52.6, 1000);
+
+        assertEquals(2, observations.deduplicate());
+
+        assertEquals(4, observations.size());
+        assertObservation(observations, 0, 13.4, 52.5, 1000);
+        assertObservation(observations, 1, 13.5, 52.5, 1000);
+        assertObservation(observations, 2, 13.4, 52.5, 2000);
+        assertObservation(observations, 3, 13.4, 52.6, 1000);
+    }
+
+    @Test
+    void deduplicateComparesCoordinatesExactly() {
+        ObservationBuffer observations = new ObservationBuffer(3);
+        observations.add(0.0, 52.5, 1000);
+        observations.add(-0.0, 52.5, 1000);
+        observations.add(Math.nextUp(0.0), 52.5, 1000);
+
+        assertEquals(0, observations.deduplicate());
+        assertEquals(3, observations.size());
+    }
+
+    @Test
+    void deduplicateHandlesCollidingAndManyObservations() {
+        ObservationBuffer observations = new ObservationBuffer(0);
+        for (int i = 0; i < 10_000; i++) {
+            observations.append(13.4 + (i % 1000) * 1e-6, 52.5, i % 1000);
+        }
+
+        assertEquals(9_000, observations.deduplicate());
+
+        assertEquals(1000, observations.size());
+        for (int i = 0; i < 1000; i++) {
+            assertObservation(observations, i, 13.4 + i * 1e-6, 52.5, i);
+        }
+    }
+
+    @Test
+    void deduplicateOfEmptyBufferRemovesNothing() {
+        ObservationBuffer observations = new ObservationBuffer(0);
+        assertEquals(0, observations.deduplicate());
+        assertTrue(observations.isEmpty());
+    }
+
+    @Test
+    void appendGrowsBuffer() {
+        ObservationBuffer observations = new ObservationBuffer(1);
+        observations.append(13.4, 52.5, 1000);
+        observations.append(13.5, 52.5, 2000);
+
+        assertEquals(2, observations.size());
+        assertObservation(observations, 1, 13.5, 52.5, 2000);
+    }
+
+    private static void assertObservation(ObservationBuffer observations, int index, double lon, double lat,
+        long millis) {
+        assertEquals(lon, observations.getLon(index));
+        assertEquals(lat, observations.getLat(index));
+        assertEquals(millis, observations.getEpochMillis(index));
+    }
+}
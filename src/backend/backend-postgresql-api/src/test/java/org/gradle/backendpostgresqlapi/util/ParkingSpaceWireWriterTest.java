@@ -0,0 +1,198 @@
+package org.gradle.backendpostgresqlapi.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.gradle.backendpostgresqlapi.dto.EditedParkingSpaceView;
+import org.gradle.backendpostgresqlapi.enums.ParkingPosition;
+import org.gradle.backendpostgresqlapi.enums.WireFormat;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParkingSpaceWireWriterTest {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // The last vertex read from the binary format
+    private int lon;
+    private int lat;
+
+    @Test
+    void polylineMatchesReferenceEncoding() throws IOException {
+        // The example of the polyline algorithm scaled by 0.1, so that precision 6 gives the same integers as 5 there
+        Polygon polygon = polygon(-12.02, 3.85, -12.095, 4.07, -12.6453, 4.3252, -12.02, 3.85);
+
+        JsonNode list = objectMapper.readTree(write(WireFormat.POLYLINE, view(7L, polygon, 3)));
+
+        JsonNode parkingSpace = list.get(0);
+        assertEquals(7, parkingSpace.get("id").asLong());
+        assertEquals(70, parkingSpace.get("parkingSpaceId").asLong());
+        assertEquals(3, parkingSpace.get("capacity").asInt());
+        assertEquals("Parallel", parkingSpace.get("position").asText());
+        String ring = parkingSpace.get("rings").get(0).asText();
+        assertTrue(ring.startsWith("_p~iF~ps|U_ulLnnqC_mqNvxq`@"), ring);
+        assertEquals(List.of(3_850_000L, -12_020_000L, 4_070_000L, -12_095_000L, 4_325_200L, -12_645_300L,
+            3_850_000L, -12_020_000L), decodePolyline(ring));
+    }
+
+    @Test
+    void polylineEncodesNegativeDeltasWithZigZag() throws IOException {
+        Polygon polygon = polygon(0, 0, 0.000001, -0.000001, -0.000016, 0.000016, 0, 0);
+
+        JsonNode list = objectMapper.readTree(write(WireFormat.POLYLINE, view(1L, polygon, null)));
+
+        // 0 and 0, then -1 and 1 as 1 and 2, then 17 and -17 as 34 and 33, then -16 and 16 as 31 and 32
+        assertEquals("??@Aa@`@^_@", list.get(0).get("rings").get(0).asText());
+        assertTrue(list.get(0).get("capacity").isNull());
+    }
+
+    @Test
+    void geoJsonCoordinatesAreQuantizedWithoutTrailingZeros() throws IOException {
+        Polygon polygon = polygon(13.4, 52.123456789, -58.3998, 0.000001, 7.0, -0.0000004, 13.4, 52.123456789);
+
+        String geoJson = write(WireFormat.GEOJSON, view(1L, polygon, null));
+
+        assertTrue(geoJson.contains("\"coordinates\":[[[13.4,52.123457],[-58.3998,0.000001],[7,0],[13.4,52.123457]]]"),
+            geoJson);
+        JsonNode featureCollection = objectMapper.readTree(geoJson);
+        assertEquals("FeatureCollection", featureCollection.get("type").asText());
+        assertEquals(10, featureCollection.get("features").get(0).get("properties").get("parkingSpaceId").asLong());
+    }
+
+    @Test
+    void binaryRecordsAreLengthPrefixedWithDeltaVertices() throws IOException {
+        LinearRing shell = geometryFactory.createLinearRing(
+            coordinates(13.4, 52.5, 13.4002, 52.5, 13.4002, 52.5001, 13.4, 52.5));
+        LinearRing hole = geometryFactory.createLinearRing(
+            coordinates(13.40015, 52.50001, 13.40018, 52.50001, 13.40018, 52.50002, 13.40015, 52.50001));
+        Polygon withHole = geometryFactory.createPolygon(shell, new LinearRing[] {hole});
+        Polygon second = polygon(-58.4, -34.6001, -58.3998, -34.6001, -58.3998, -34.6, -58.4, -34.6001);
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+            writeBytes(WireFormat.BINARY, view(1L, withHole, 2), view(2L, second, null))));
+        lon = 0;
+        lat = 0;
+
+        int length = input.readInt();
+        assertEquals(8 + 8 + 1 + 4 + 8 + 1 + 2 + 2 * 4 + 8 * 2 * 4, length);
+        assertEquals(1, input.readLong());
+        assertEquals(10, input.readLong());
+        assertEquals(1, input.readByte());
+        assertEquals(2, input.readInt());
+        assertEquals(12.5, input.readDouble());
+        assertEquals(ParkingPosition.LAENGS.ordinal(), input.readByte());
+        assertEquals(2, input.readShort());
+        assertEquals(List.of(134_000_000, 525_000_000, 134_002_000, 525_000_000, 134_002_000, 525_001_000,
+            134_000_000, 525_000_000), readRing(input));
+        // The deltas continue across the rings of a record
+        assertEquals(List.of(134_001_500, 525_000_100, 134_001_800, 525_000_100, 134_001_800, 525_000_200,
+            134_001_500, 525_000_100), readRing(input));
+
+        length = input.readInt();
+        assertEquals(8 + 8 + 1 + 4 + 8 + 1 + 2 + 4 + 4 * 2 * 4, length);
+        assertEquals(2, input.readLong());
+        lon = 0;
+        lat = 0;
+        input.skipBytes(8 + 1);
+        assertEquals(-1, input.readInt());
+        input.skipBytes(8 + 1 + 2);
+        // Every record starts with an absolute vertex
+        assertEquals(List.of(-584_000_000, -346_001_000, -583_998_000, -346_001_000, -583_998_000, -346_000_000,
+            -584_000_000, -346_001_000), readRing(input));
+        assertEquals(-1, input.read());
+    }
+
+    private String write(WireFormat format, EditedParkingSpaceView... editedParkingSpaces) throws IOException {
+        return new String(writeBytes(format, editedParkingSpaces), StandardCharsets.UTF_8);
+    }
+
+    private byte[] writeBytes(WireFormat format, EditedParkingSpaceView... editedParkingSpaces) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectWriter dtoWriter = objectMapper.writer();
+        try (ParkingSpaceWireWriter writer = ParkingSpaceWireWriter.create(format, outputStream, dtoWriter)) {
+            for (EditedParkingSpaceView editedParkingSpace : editedParkingSpaces) {
+                writer.write(editedParkingSpace);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Reads a ring of the binary format and accumulates its deltas, continuing from the previous ring.
+     */
+    private List<Integer> readRing(DataInputStream input) throws IOException {
+        List<Integer> vertices = new ArrayList<>();
+        int vertexCount = input.readInt();
+        for (int i = 0; i < vertexCount; i++) {
+            lon += input.readInt();
+            lat += input.readInt();
+            vertices.add(lon);
+            vertices.add(lat);
+        }
+        return vertices;
+    }
+
+    private static List<Long> decodePolyline(String polyline) {
+        List<Long> values = new ArrayList<>();
+        long previousLat = 0;
+        long previousLon = 0;
+        int index = 0;
+        while (index < polyline.length()) {
+            long[] latResult = decodeValue(polyline, index);
+            long[] lonResult = decodeValue(polyline, (int) latResult[1]);
+            previousLat += latResult[0];
+            previousLon += lonResult[0];
+            values.add(previousLat);
+            values.add(previousLon);
+            index = (int) lonResult[1];
+        }
+        return values;
+    }
+
+    private static long[] decodeValue(String polyline, int index) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            chunk = polyline.charAt(index++) - 63;
+            result |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return new long[] {(result & 1) != 0 ? ~(result >> 1) : result >> 1, index};
+    }
+
+    private Polygon polygon(double... lonLat) {
+        return geometryFactory.createPolygon(coordinates(lonLat));
+    }
+
+    private static Coordinate[] coordinates(double... lonLat) {
+        Coordinate[] coordinates = new Coordinate[lonLat.length / 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(lonLat[2 * i], lonLat[2 * i + 1]);
+        }
+        return coordinates;
+    }
+
+    private static EditedParkingSpaceView view(Long id, Polygon polygon, Integer capacity) {
+        return new EditedParkingSpaceView() {
+            public Long getId() { return id; }
+            public Long getParkingSpaceId() { return id * 10; }
+            public Polygon getPolygon() { return polygon; }
+            public boolean isOccupied() { return id == 1; }
+            public double getArea() { return 12.5; }
+            public Integer getCapacity() { return capacity; }
+            public ParkingPosition getPosition() { return ParkingPosition.LAENGS; }
+        };
+    }
+}
@@ -182,28 +182,44 @@ export class RestAPIService {
     });
   }
 
+  /**
+   * Gets the whole history of a parking space, following the 'X-Next-Cursor' header from page to page
+   * @param parkingSpaceId {id} of the parking space
+   * @returns all observation times of the parking space
+   */
   getTimestampDataHistory(parkingSpaceId: string) {
     return new Promise((resolve) => {
-      console.log('getTimestampData');
-      const options = {
-        // headers: new HttpHeaders().set("APP-USER-ID", this.userId),
-        // params: new HttpParams().set("occupied", occupied),
+      console.log('getTimestampDataHistory');
+      const history: string[] = [];
+      const getPage = (after: string | null) => {
+        let params = new HttpParams();
+        if (after !== null) {
+          params = params.set('after', after);
+        }
+        this.http
+          .get<string[]>(
+            this.apiURL + 'parking-spaces/' + parkingSpaceId + '/history',
+            { params: params, observe: 'response' }
+          )
+          .pipe()
+          .subscribe({
+            next: (response) => {
+              // An empty page is answered with 204 and without body
+              history.push(...(response.body ?? []));
+              const nextCursor = response.headers.get('X-Next-Cursor');
+              if (nextCursor !== null) {
+                getPage(nextCursor);
+              } else {
+                resolve(history);
+                console.log('history', history);
+              }
+            },
+            error: (err) => {
+              console.error('error generated', err);
+            },
+          });
       };
-      this.http
-        .get(
-          this.apiURL + 'parking-spaces/' + parkingSpaceId + '/history',
-          options
-        )
-        .pipe()
-        .subscribe({
-          next: (data) => {
-            resolve(data);
-            console.log("history",data);
-          },
-          error: (err) => {
-            console.error('error generated', err);
-          },
-        });
+      getPage(null);
     });
   }
 }